@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Supplier;
+
+// Workloads for the JMH benchmarks. The engine lives in the default package, which JMH benchmark
+// classes cannot import, so each benchmark looks up one of these factories once during setup and
+// only calls the returned Supplier while measuring.
+public final class BenchmarkFixtures {
+    private static final int SEMESTERS_PER_YEAR = 2;
+    private static final int YEARS = 4;
+    private static final int ELECTIVE_SLOTS_PER_TERM = 4;
+
+    private BenchmarkFixtures() {
+    }
+
+    // "curriculum" for src/curriculum.xml, otherwise the size of a synthetic catalog
+    public static Path catalog(String catalog) {
+        if ("curriculum".equals(catalog)) {
+            Path path = Paths.get(CurriculumRegistry.DEFAULT_CURRICULUM);
+            return Files.exists(path) ? path : Paths.get("..").resolve(path);
+        }
+        return syntheticCatalog(Integer.parseInt(catalog), false);
+    }
+
+    // Parse a catalog without building the index
+    public static Supplier<Object> parse(String catalog) {
+        Path path = catalog(catalog);
+        return () -> CurriculumLoader.load(path);
+    }
+
+    // Parse a catalog and compile its index
+    public static Supplier<Object> parseAndIndex(String catalog) {
+        Path path = catalog(catalog);
+        return () -> new CurriculumIndex(CurriculumLoader.load(path));
+    }
+
+    // One recommendation call for a representative history
+    public static Supplier<Object> recommendation(String catalog, String scenario) {
+        return recommendation(catalog, scenario, StudentEval.LoadSolver.GREEDY.name());
+    }
+
+    // Same call with the given StudentEval.LoadSolver
+    public static Supplier<Object> recommendation(String catalog, String scenario, String solver) {
+        CurriculumIndex curriculum = new CurriculumIndex(CurriculumLoader.load(catalog(catalog)));
+        StudentEval eval = new StudentEval(curriculum).withLoadSolver(StudentEval.LoadSolver.valueOf(solver));
+        return recommendation(eval, curriculum, scenario);
+    }
+
+    // One recommendation call on a catalog where every term offers several "it-el"/"it-fre" slots,
+    // so most candidates go through the elective branch of canAddSubject
+    public static Supplier<Object> electives(String catalog, String scenario) {
+        Path path = syntheticCatalog(Integer.parseInt(catalog), true);
+        CurriculumIndex curriculum = new CurriculumIndex(CurriculumLoader.load(path));
+        return recommendation(new StudentEval(curriculum), curriculum, scenario);
+    }
+
+    private static Supplier<Object> recommendation(StudentEval eval, CurriculumIndex curriculum, String scenario) {
+        Scenario student = Scenario.of(curriculum, scenario);
+        Map<String, Boolean> frozen = Collections.unmodifiableMap(student.history);
+        return () -> eval.getRecommendedSubjects(frozen, student.year, student.semester);
+    }
+
+    // The same recommendation through StudentEval.recommendInto with a prebuilt record and a reused
+    // buffer, the allocation-free path; each call returns the number of subjects
+    public static Supplier<Object> recommendationInto(String catalog, String scenario) {
+        CurriculumIndex curriculum = new CurriculumIndex(CurriculumLoader.load(catalog(catalog)));
+        StudentEval eval = new StudentEval(curriculum);
+        Scenario student = Scenario.of(curriculum, scenario);
+        AcademicRecord record = AcademicRecord.of(curriculum, student.history);
+        Subject[] buffer = new Subject[64];
+        return () -> eval.recommendInto(record, student.year, student.semester, buffer);
+    }
+
+    // A representative history and the term it was recorded up to
+    private static final class Scenario {
+        final Map<String, Boolean> history = new HashMap<>();
+        int year;
+        int semester;
+
+        static Scenario of(CurriculumIndex curriculum, String scenario) {
+            Scenario student = new Scenario();
+            switch (scenario) {
+                case "freshman":
+                    // Finished first semester with everything passed
+                    student.year = 1;
+                    student.semester = 1;
+                    passTermsUpTo(curriculum, student.history, 1, 1, 0);
+                    break;
+                case "irregular":
+                    // Second year, roughly a third of everything taken so far failed
+                    student.year = 2;
+                    student.semester = 2;
+                    passTermsUpTo(curriculum, student.history, 2, 2, 3);
+                    break;
+                case "nearGraduate":
+                    // Everything passed up to the last semester
+                    student.year = 4;
+                    student.semester = 1;
+                    passTermsUpTo(curriculum, student.history, 4, 1, 0);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown scenario: " + scenario);
+            }
+            return student;
+        }
+    }
+
+    // Posting one grade for a second-year student: "incremental" updates the previous recommendation
+    // with StudentEval.updateRecommendation, "full" recomputes from the changed history. Each call
+    // posts the next subject of the current term, cycling through them.
+    public static Supplier<Object> gradePosting(String catalog, String mode) {
+        CurriculumIndex curriculum = new CurriculumIndex(CurriculumLoader.load(catalog(catalog)));
+        StudentEval eval = new StudentEval(curriculum);
+        Map<String, Boolean> history = new HashMap<>();
+        passTermsUpTo(curriculum, history, 2, 1, 3);
+        IncrementalRecommendation previous = eval.recommendIncrementally(history, 2, 2);
+
+        Subject[] posted = curriculum.getTermSubjects(2, 2);
+        List<Map<String, Boolean>> histories = new ArrayList<>();
+        for (int i = 0; i < posted.length; i++) {
+            Map<String, Boolean> changed = new HashMap<>(history);
+            changed.put(posted[i].getCode(), i % 4 != 0);
+            histories.add(Collections.unmodifiableMap(changed));
+        }
+
+        int[] next = {0};
+        if ("incremental".equals(mode)) {
+            return () -> {
+                int i = next[0]++ % posted.length;
+                return eval.updateRecommendation(previous, posted[i].getCode(), i % 4 != 0);
+            };
+        }
+        return () -> eval.getRecommendedSubjects(histories.get(next[0]++ % posted.length), 2, 2);
+    }
+
+    // Record every subject up to and including the given term; every failEvery-th one is failed
+    private static void passTermsUpTo(CurriculumIndex curriculum, Map<String, Boolean> history,
+                                      int lastYear, int lastSemester, int failEvery) {
+        int count = 0;
+        for (int year = 1; year <= lastYear; year++) {
+            int semesters = year == lastYear ? lastSemester : SEMESTERS_PER_YEAR;
+            for (int semester = 1; semester <= semesters; semester++) {
+                for (Subject subject : curriculum.getTermSubjects(year, semester)) {
+                    count++;
+                    history.put(subject.getCode(), failEvery == 0 || count % failEvery != 0);
+                }
+            }
+        }
+    }
+
+    // Write a synthetic curriculum with the given number of subjects spread over four years.
+    // Each subject depends on up to two subjects from earlier terms.
+    private static Path syntheticCatalog(int size, boolean electives) {
+        try {
+            Path path = Files.createTempFile("curriculum-" + size + "-", ".xml");
+            path.toFile().deleteOnExit();
+
+            Random random = new Random(size);
+            String[] yearNames = {"firstYear", "secondYear", "thirdYear", "fourthYear"};
+            String[] semesterNames = {"firstSem", "secondSem"};
+            int terms = YEARS * SEMESTERS_PER_YEAR;
+            int perTerm = Math.max(1, size / terms);
+            List<String> earlier = new ArrayList<>();
+            int code = 0;
+
+            try (Writer out = Files.newBufferedWriter(path)) {
+                out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<curriculum>\n");
+                for (int year = 0; year < YEARS; year++) {
+                    out.write("    <" + yearNames[year] + ">\n");
+                    for (int semester = 0; semester < SEMESTERS_PER_YEAR; semester++) {
+                        out.write("        <" + semesterNames[semester] + ">\n");
+                        List<String> current = new ArrayList<>();
+                        for (int i = 0; i < perTerm && code < size; i++, code++) {
+                            String subjectCode = String.format("syn%06d", code);
+                            current.add(subjectCode);
+                            writeSubject(out, subjectCode, prerequisites(random, earlier));
+                        }
+                        if (electives) {
+                            for (int i = 0; i < ELECTIVE_SLOTS_PER_TERM; i++) {
+                                writeSubject(out, i % 2 == 0 ? "it-el" : "it-fre", Collections.emptyList());
+                            }
+                        }
+                        earlier.addAll(current);
+                        out.write("        </" + semesterNames[semester] + ">\n");
+                    }
+                    out.write("    </" + yearNames[year] + ">\n");
+                }
+                out.write("</curriculum>\n");
+            }
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> prerequisites(Random random, List<String> earlier) {
+        if (earlier.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> prereqs = new ArrayList<>();
+        int count = random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            String prereq = earlier.get(random.nextInt(earlier.size()));
+            if (!prereqs.contains(prereq)) {
+                prereqs.add(prereq);
+            }
+        }
+        return prereqs;
+    }
+
+    private static void writeSubject(Writer out, String code, List<String> prereqs) throws IOException {
+        if (prereqs.isEmpty()) {
+            out.write("            <subject subjectCode=\"" + code + "\" units=\"3\" />\n");
+            return;
+        }
+        out.write("            <subject subjectCode=\"" + code + "\" units=\"3\">\n");
+        out.write("                <prerequisites>\n");
+        for (String prereq : prereqs) {
+            out.write("                    <prerequisite>" + prereq + "</prerequisite>\n");
+        }
+        out.write("                </prerequisites>\n");
+        out.write("            </subject>\n");
+    }
+}
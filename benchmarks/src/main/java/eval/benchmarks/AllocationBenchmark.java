@@ -0,0 +1,41 @@
+package eval.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Allocation per recommendation: "list" is getRecommendedSubjects on a history map, "into" is
+// recommendInto with a prebuilt AcademicRecord and a reused buffer. Run with the GC profiler,
+//   java -jar target/benchmarks.jar AllocationBenchmark -prof gc
+// and check gc.alloc.rate.norm; the "into" rows should report (close to) 0 B/op.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+    @Param({"curriculum", "5000"})
+    public String catalog;
+
+    @Param({"freshman", "irregular", "nearGraduate"})
+    public String scenario;
+
+    @Param({"list", "into"})
+    public String path;
+
+    private Supplier<Object> recommendation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        recommendation = "into".equals(path)
+                ? Fixtures.workload("recommendationInto", catalog, scenario)
+                : Fixtures.workload("recommendation", catalog, scenario);
+    }
+
+    @Benchmark
+    public Object recommend() {
+        return recommendation.get();
+    }
+}
@@ -0,0 +1,37 @@
+package eval.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Curriculum parsing on curriculum.xml and synthetic catalogs, with and without index compilation
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CurriculumLoadBenchmark {
+    @Param({"curriculum", "500", "5000", "50000"})
+    public String catalog;
+
+    private Supplier<Object> parse;
+    private Supplier<Object> parseAndIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parse = Fixtures.workload("parse", catalog);
+        parseAndIndex = Fixtures.workload("parseAndIndex", catalog);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return parse.get();
+    }
+
+    @Benchmark
+    public Object parseAndIndex() {
+        return parseAndIndex.get();
+    }
+}
@@ -0,0 +1,34 @@
+package eval.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Recommendations on catalogs full of "it-el"/"it-fre" slots, dominated by elective slot accounting
+// in canAddSubject (which is private, so it is measured through getRecommendedSubjects)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ElectiveBenchmark {
+    @Param({"500", "5000"})
+    public String catalog;
+
+    @Param({"freshman", "nearGraduate"})
+    public String scenario;
+
+    private Supplier<Object> recommendation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        recommendation = Fixtures.workload("electives", catalog, scenario);
+    }
+
+    @Benchmark
+    public Object recommend() {
+        return recommendation.get();
+    }
+}
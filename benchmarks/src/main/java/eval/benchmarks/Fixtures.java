@@ -0,0 +1,26 @@
+package eval.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+// Bridge to the default-package BenchmarkFixtures, resolved once per trial
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static Supplier<Object> workload(String factory, String... args) {
+        try {
+            Class<?>[] types = new Class<?>[args.length];
+            Arrays.fill(types, String.class);
+            Method method = Class.forName("BenchmarkFixtures").getMethod(factory, types);
+            return (Supplier<Object>) method.invoke(null, (Object[]) args);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
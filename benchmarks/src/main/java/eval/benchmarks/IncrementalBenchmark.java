@@ -0,0 +1,33 @@
+package eval.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// One posted grade: StudentEval.updateRecommendation against a full getRecommendedSubjects
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IncrementalBenchmark {
+    @Param({"curriculum", "300", "5000"})
+    public String catalog;
+
+    @Param({"incremental", "full"})
+    public String mode;
+
+    private Supplier<Object> posting;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        posting = Fixtures.workload("gradePosting", catalog, mode);
+    }
+
+    @Benchmark
+    public Object postGrade() {
+        return posting.get();
+    }
+}
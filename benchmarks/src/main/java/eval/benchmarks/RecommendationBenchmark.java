@@ -0,0 +1,36 @@
+package eval.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// StudentEval.getRecommendedSubjects for representative histories, per load solver
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommendationBenchmark {
+    @Param({"curriculum", "5000"})
+    public String catalog;
+
+    @Param({"freshman", "irregular", "nearGraduate"})
+    public String scenario;
+
+    @Param({"GREEDY", "OPTIMAL"})
+    public String solver;
+
+    private Supplier<Object> recommendation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        recommendation = Fixtures.workload("recommendation", catalog, scenario, solver);
+    }
+
+    @Benchmark
+    public Object recommend() {
+        return recommendation.get();
+    }
+}
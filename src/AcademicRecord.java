@@ -0,0 +1,108 @@
+import java.util.Arrays;
+import java.util.Map;
+
+// A student's academic history encoded as bitsets over the curriculum's ordinals.
+// Codes the curriculum has never heard of are dropped since no subject can refer to them.
+public final class AcademicRecord {
+    private final long[] passed;
+    private final long[] taken;
+
+    private AcademicRecord(long[] passed, long[] taken) {
+        this.passed = passed;
+        this.taken = taken;
+    }
+
+    public static AcademicRecord of(CurriculumIndex curriculum, Map<String, Boolean> academicHistory) {
+        int words = curriculum.getWordCount();
+        long[] passed = new long[words];
+        long[] taken = new long[words];
+
+        for (Map.Entry<String, Boolean> entry : academicHistory.entrySet()) {
+            int ordinal = curriculum.ordinalOf(entry.getKey());
+            if (ordinal < 0) {
+                continue;
+            }
+
+            taken[ordinal >>> 6] |= 1L << ordinal;
+            if (entry.getValue()) {
+                passed[ordinal >>> 6] |= 1L << ordinal;
+            }
+        }
+        return new AcademicRecord(passed, taken);
+    }
+
+    // Copy with one ordinal set to passed, failed (result false) or not taken (result null)
+    public AcademicRecord with(int ordinal, Boolean result) {
+        long[] newPassed = passed.clone();
+        long[] newTaken = taken.clone();
+        long bit = 1L << ordinal;
+        newTaken[ordinal >>> 6] &= ~bit;
+        newPassed[ordinal >>> 6] &= ~bit;
+        if (result != null) {
+            newTaken[ordinal >>> 6] |= bit;
+            if (result) {
+                newPassed[ordinal >>> 6] |= bit;
+            }
+        }
+        return new AcademicRecord(newPassed, newTaken);
+    }
+
+    // Number of 64-bit words per bitset; matches CurriculumIndex.getWordCount of its curriculum
+    public int getWordCount() {
+        return taken.length;
+    }
+
+    public boolean hasPassed(int ordinal) {
+        return ordinal >= 0 && (passed[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    public boolean hasTaken(int ordinal) {
+        return ordinal >= 0 && (taken[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    public boolean hasFailed(int ordinal) {
+        return hasTaken(ordinal) && !hasPassed(ordinal);
+    }
+
+    // Next ordinal at or after fromOrdinal that was taken but not passed, or -1
+    public int nextFailed(int fromOrdinal) {
+        int word = fromOrdinal >>> 6;
+        if (fromOrdinal < 0 || word >= taken.length) {
+            return -1;
+        }
+
+        long bits = (taken[word] & ~passed[word]) & (-1L << fromOrdinal);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == taken.length) {
+                return -1;
+            }
+            bits = taken[word] & ~passed[word];
+        }
+    }
+
+    public boolean satisfies(PrerequisiteMask prerequisites) {
+        return prerequisites.isSatisfiedBy(passed);
+    }
+
+    // Check a subject's rule for a student in the given year level who is also taking the
+    // subjects set in concurrent (a bitset over the same ordinals) this term
+    public boolean satisfies(PrerequisiteMask prerequisites, long[] concurrent, int yearLevel) {
+        return prerequisites.isSatisfiedBy(passed, concurrent, yearLevel);
+    }
+
+    // Two records are equal when they pass and take the same curriculum subjects
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof AcademicRecord)) return false;
+        AcademicRecord other = (AcademicRecord) o;
+        return Arrays.equals(passed, other.passed) && Arrays.equals(taken, other.taken);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(passed) + Arrays.hashCode(taken);
+    }
+}
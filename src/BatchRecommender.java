@@ -0,0 +1,382 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+// Streaming batch mode for registrar runs. Reads student histories line by line, computes
+// recommendations on a fixed worker pool and writes one CSV row per student in input order.
+// At most WINDOW_PER_WORKER rows per worker are in flight, so memory stays flat however large
+// the input is.
+//
+// Input is either CSV with a header row:
+//   studentId,program,year,semester,history
+//   2021-0001,BSIT,1,2,eng100:P;math100:F
+// or JSON lines (.jsonl/.ndjson) in the RecommendationJson format, or a StudentStore log. An empty
+// history marks a new student. Output columns: studentId,program,totalUnits,subjects,error
+// CSV fields may be quoted and a quoted field may span lines.
+public class BatchRecommender {
+    private static final int WINDOW_PER_WORKER = 64;
+    private static final int MAX_RECORD_CHARS = 1 << 20; // Bounds a record left open by a stray quote
+    private static final int CACHE_SIZE = 10_000;
+    private static final String OUTPUT_HEADER = "studentId,program,totalUnits,subjects,error";
+
+    private final School school;
+    private final StudentEval engine;
+    private final int workers;
+
+    private long rows;
+    private long errors;
+
+    public BatchRecommender(School school, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1");
+        }
+        this.school = school;
+        this.workers = workers;
+        this.engine = new StudentEval(school, school.getPrograms().iterator().next().getProgramCode(),
+                new RecommendationCache(CACHE_SIZE));
+    }
+
+    public void run(Path input, Path output) throws IOException, InterruptedException {
+        // Resolve each program's curriculum once for the whole run
+        StudentEval eval = engine.pinCurricula();
+        if (StudentStore.isStore(input)) {
+            // A student store is read in one sequential pass over its log
+            try (StudentStore store = StudentStore.open(input);
+                 Stream<Student> students = store.stream()) {
+                run(students.map(student -> (Callable<Row>) () -> process(eval, student)).iterator(), output);
+            }
+            return;
+        }
+
+        if (isJsonLines(input)) {
+            try (Stream<String> lines = Files.lines(input, StandardCharsets.UTF_8)) {
+                run(lines.filter(line -> !line.trim().isEmpty())
+                        .map(line -> (Callable<Row>) () -> process(eval, line, true))
+                        .iterator(), output);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            CsvRecords records = new CsvRecords(reader);
+            if (records.hasNext()) {
+                records.next(); // Skip the header row
+            }
+            run(new Iterator<Callable<Row>>() {
+                @Override
+                public boolean hasNext() {
+                    return records.hasNext();
+                }
+
+                @Override
+                public Callable<Row> next() {
+                    String record = records.next();
+                    return () -> process(eval, record, false);
+                }
+            }, output);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Reads whole CSV records: a line that ends inside a quoted field continues on the next one.
+    // Blank records are skipped.
+    private static final class CsvRecords implements Iterator<String> {
+        private final BufferedReader reader;
+        private String next;
+        private long lineNumber;
+
+        CsvRecords(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String record = next;
+            next = null;
+            return record;
+        }
+
+        private String read() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.trim().isEmpty());
+
+            long firstLine = lineNumber;
+            boolean quoted = isOpen(line, false);
+            if (!quoted) {
+                return line;
+            }
+
+            StringBuilder record = new StringBuilder(line);
+            while (quoted) {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    // Let the row fail on its own rather than losing it
+                    return record.toString();
+                }
+                record.append('\n').append(line);
+                if (record.length() > MAX_RECORD_CHARS) {
+                    throw new IOException("CSV record starting at line " + firstLine
+                            + " is longer than " + MAX_RECORD_CHARS + " characters; check for an unclosed quote");
+                }
+                quoted = isOpen(line, true);
+            }
+            return record.toString();
+        }
+
+        // Whether a line ends inside a quoted field, given whether it started inside one.
+        // A doubled quote toggles twice, so counting quotes is enough.
+        private static boolean isOpen(String line, boolean quoted) {
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == '"') {
+                    quoted = !quoted;
+                }
+            }
+            return quoted;
+        }
+    }
+
+    // Run tasks on the pool and write their rows in submission order
+    private void run(Iterator<Callable<Row>> tasks, Path output) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        ArrayDeque<Future<Row>> inFlight = new ArrayDeque<>();
+        int window = workers * WINDOW_PER_WORKER;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(OUTPUT_HEADER);
+            writer.newLine();
+
+            while (tasks.hasNext()) {
+                inFlight.add(pool.submit(tasks.next()));
+                if (inFlight.size() >= window) {
+                    writeNext(inFlight, writer);
+                }
+            }
+
+            while (!inFlight.isEmpty()) {
+                writeNext(inFlight, writer);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    private void writeNext(ArrayDeque<Future<Row>> inFlight, BufferedWriter writer)
+            throws IOException, InterruptedException {
+        Row row;
+        try {
+            row = inFlight.poll().get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch worker failed", e.getCause());
+        }
+
+        rows++;
+        if (row.failed) {
+            errors++;
+        }
+        writer.write(row.csv);
+        writer.newLine();
+    }
+
+    // Compute one output row; rows that cannot be evaluated carry the reason in the error column
+    private Row process(StudentEval eval, String line, boolean jsonLines) {
+        Student student;
+        try {
+            student = jsonLines
+                    ? RecommendationJson.readStudent(Json.parseObject(line), school, eval::curriculumFor)
+                    : readCsvStudent(eval, line);
+        } catch (RuntimeException e) {
+            String studentId = jsonLines ? "" : splitCsv(line, false).get(0);
+            return new Row(csv(studentId) + ",,,," + csv(String.valueOf(e.getMessage())), true);
+        }
+        return process(eval, student);
+    }
+
+    private Row process(StudentEval eval, Student student) {
+        String studentId = student.getStudentId();
+        String program = student.getProgramCode() == null ? "" : student.getProgramCode();
+        try {
+            List<Subject> subjects = eval.getRecommendedSubjects(student);
+            int totalUnits = 0;
+            StringBuilder codes = new StringBuilder();
+            for (Subject subject : subjects) {
+                if (codes.length() > 0) codes.append(';');
+                codes.append(subject.getCode());
+                totalUnits += subject.getUnits();
+            }
+            return new Row(csv(studentId) + "," + csv(program) + "," + totalUnits + "," + csv(codes.toString()) + ",",
+                    false);
+        } catch (RuntimeException e) {
+            return new Row(csv(studentId) + "," + csv(program) + ",,," + csv(String.valueOf(e.getMessage())), true);
+        }
+    }
+
+    // One formatted output line
+    private static final class Row {
+        final String csv;
+        final boolean failed;
+
+        Row(String csv, boolean failed) {
+            this.csv = csv;
+            this.failed = failed;
+        }
+    }
+
+    private Student readCsvStudent(StudentEval eval, String line) {
+        List<String> fields = splitCsv(line, true);
+        if (fields.size() < 4) {
+            throw new IllegalArgumentException("Expected studentId,program,year,semester,history");
+        }
+
+        String history = fields.size() > 4 ? fields.get(4).trim() : "";
+        Program program = school.getProgram(fields.get(1));
+        if (program == null) {
+            throw new IllegalArgumentException("Unknown program: " + fields.get(1));
+        }
+
+        Student student = new Student(fields.get(0), program.getProgramCode(), history.isEmpty());
+        student.setCurrentTerm(parseInt(fields.get(2), "year"), parseInt(fields.get(3), "semester"));
+
+        CurriculumIndex curriculum = eval.curriculumFor(program);
+        for (String entry : history.split(";")) {
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int colon = entry.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("History entries must look like code:P or code:F");
+            }
+            String code = entry.substring(0, colon).trim();
+            String status = entry.substring(colon + 1).trim();
+            Subject subject = curriculum.getSubject(code);
+            student.addTakenSubject(subject != null ? subject : new Subject(code, 0), isPass(status));
+        }
+        return student;
+    }
+
+    private static boolean isPass(String status) {
+        if (status.equalsIgnoreCase("P") || status.equalsIgnoreCase("Pass")) return true;
+        if (status.equalsIgnoreCase("F") || status.equalsIgnoreCase("Fail")) return false;
+        throw new IllegalArgumentException("Unknown status: " + status);
+    }
+
+    private static int parseInt(String value, String field) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " must be an integer");
+        }
+    }
+
+    // Split one CSV record, honoring double-quoted fields; strict rejects a quote left open
+    private static List<String> splitCsv(String line, boolean strict) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted && strict) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static boolean isJsonLines(Path input) {
+        String name = input.getFileName().toString().toLowerCase();
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    // Usage: BatchRecommender <input.csv|input.jsonl|students.log> <output.csv> [workers]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchRecommender <input.csv|input.jsonl|students.log> <output.csv> [workers]");
+            System.exit(2);
+        }
+
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        RecommendationMetrics.registerMBeans();
+        BatchRecommender batch = new BatchRecommender(School.getDefault(), workers);
+
+        long start = System.nanoTime();
+        batch.run(Paths.get(args[0]), Paths.get(args[1]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.err.printf("Processed %d rows in %.2f s (%.0f rows/s), %d errors%n",
+                batch.getRows(), seconds, batch.getRows() / Math.max(seconds, 1e-9), batch.getErrors());
+    }
+}
@@ -1,19 +1,46 @@
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Curriculum {
     private Map<String, List<Subject>> semesterSubjects;
+    private Map<Integer, List<Subject>> termSubjects; // Same lists keyed by packed Term
     private Map<String, Subject> allSubjects;
+    private CurriculumIndex index;
 
     public Curriculum() {
-        this.semesterSubjects = new HashMap<>();
+        this.semesterSubjects = new LinkedHashMap<>(); // Kept in the order terms were added
+        this.termSubjects = new HashMap<>();
         this.allSubjects = new HashMap<>();
     }
 
+    // Curriculum backed by a compiled index
+    public Curriculum(CurriculumIndex index) {
+        this();
+        for (int year = 1; year <= index.getMaxYear(); year++) {
+            for (int semester = 1; semester <= index.getTermsPerYear(); semester++) {
+                List<Subject> subjects = new ArrayList<>(List.of(index.getTermSubjects(year, semester)));
+                if (!subjects.isEmpty()) {
+                    int term = Term.of(year, semester);
+                    semesterSubjects.put(Term.toString(term), subjects);
+                    termSubjects.put(term, subjects);
+                    subjects.forEach(subject -> allSubjects.putIfAbsent(subject.getCode(), subject));
+                }
+            }
+        }
+        this.index = index;
+    }
+
     public void addSemesterSubjects(String semester, List<Subject> subjects) {
         semesterSubjects.put(semester, subjects);
+        int term = Term.parse(semester);
+        if (term != Term.NONE) {
+            termSubjects.put(term, subjects);
+        }
         subjects.forEach(subject -> allSubjects.put(subject.getCode(), subject));
+        index = null; // Recompiled on next use
     }
 
     public List<Subject> getSemesterSubjects(String semester) {
@@ -24,16 +51,43 @@ public class Curriculum {
         return allSubjects.get(code);
     }
 
+    // Subjects of the term after a "year-semester" key: the summer after a second semester when
+    // this curriculum has one, otherwise the next regular semester
     public List<Subject> getNextSemesterSubjects(String currentSemester) {
-        // Simple logic to get next semester - you might want to enhance this
-        String year = currentSemester.split("-")[0];
-        String sem = currentSemester.split("-")[1];
-
-        if (sem.equals("1")) {
-            return semesterSubjects.get(year + "-2");
-        } else {
-            int nextYear = Integer.parseInt(year) + 1;
-            return semesterSubjects.get(nextYear + "-1");
+        int term = Term.parse(currentSemester);
+        if (term == Term.NONE) {
+            throw new IllegalArgumentException("Not a year-semester term: " + currentSemester);
+        }
+        int next = Term.next(term);
+        if (Term.isSummer(next) && !termSubjects.containsKey(next)) {
+            next = Term.nextSemester(term);
+        }
+        return termSubjects.get(next);
+    }
+
+    // Compiled view of this curriculum: the index it was built from until terms are added, then
+    // an index over every term's subjects in the order the terms were added. Elective slots stay
+    // separate entries, and the index keeps its own copies of the subjects.
+    public CurriculumIndex getIndex() {
+        if (index == null) {
+            List<Subject> subjects = new ArrayList<>();
+            semesterSubjects.values().forEach(subjects::addAll);
+            index = new CurriculumIndex(subjects);
         }
+        return index;
+    }
+
+    public PrerequisiteGraph getPrerequisiteGraph() {
+        return getIndex().getPrerequisiteGraph();
+    }
+
+    // Every subject that must be passed, directly or indirectly, before taking code
+    public List<String> getAncestors(String code) {
+        return getPrerequisiteGraph().getAncestors(code);
+    }
+
+    // Every subject that directly or indirectly requires code
+    public List<String> getDescendants(String code) {
+        return getPrerequisiteGraph().getDescendants(code);
     }
-}
\ No newline at end of file
+}
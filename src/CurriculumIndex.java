@@ -0,0 +1,416 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Immutable, precompiled view of a curriculum. Built once when the curriculum is loaded so that
+// recommendation phases only touch the (year, semester) buckets they need instead of rescanning
+// every subject. Every year has a bucket for its summer term as well, empty unless the curriculum
+// offers summer subjects.
+public final class CurriculumIndex {
+    static final int SEMESTERS_PER_YEAR = 2; // Regular semesters, summer not included
+    private static final Subject[] NO_SUBJECTS = new Subject[0];
+    private static final AtomicLong NEXT_SNAPSHOT_ID = new AtomicLong();
+
+    private final List<Subject> subjects;
+    private final Map<String, Subject> subjectsByCode;
+    private final Map<String, Integer> ordinals;
+    private final String[] codesByOrdinal;
+    private final Subject[] subjectsByOrdinal;
+    private final PrerequisiteMask[] prerequisiteMasks;
+    private final Subject[] orderedCoreSubjects;
+    private final int[] coreTermEnds; // End of each term's run in orderedCoreSubjects, after those without one
+    private final TermBucket[] buckets;
+    private final int[] electiveIds;
+    private final int[][] electiveCapacity;
+    private final int maxYear;
+    private final PrerequisiteGraph prerequisiteGraph;
+    private final long snapshotId = NEXT_SNAPSHOT_ID.incrementAndGet();
+    private volatile boolean superseded;
+
+    public CurriculumIndex(List<Subject> subjects) {
+        this(subjects, Layout.of(subjects));
+    }
+
+    // The index keeps its own copies of the subjects, carrying their ordinals, and hands those out
+    private CurriculumIndex(List<Subject> sourceSubjects, Layout layout) {
+        this(layout, copyWithOrdinals(sourceSubjects, layout));
+    }
+
+    // Assemble an index from a layout computed earlier and subjects built for it, each already
+    // carrying its layout ordinal (see CurriculumSnapshot); the index takes ownership of them
+    static CurriculumIndex ofLayout(Layout layout, List<Subject> subjects) {
+        for (int position = 0; position < subjects.size(); position++) {
+            if (subjects.get(position).getOrdinal() != layout.subjectOrdinals[position]) {
+                throw new IllegalArgumentException("Subject " + subjects.get(position).getCode()
+                        + " does not carry its layout ordinal");
+            }
+        }
+        return new CurriculumIndex(layout, subjects);
+    }
+
+    private CurriculumIndex(Layout layout, List<Subject> subjects) {
+        this.subjects = Collections.unmodifiableList(subjects);
+        this.maxYear = layout.maxYear;
+        this.codesByOrdinal = layout.codesByOrdinal;
+
+        // First occurrence wins, matching the old linear findSubjectByCode
+        Map<String, Subject> byCode = new HashMap<>();
+        for (Subject subject : subjects) {
+            byCode.putIfAbsent(subject.getCode(), subject);
+        }
+        this.subjectsByCode = Collections.unmodifiableMap(byCode);
+
+        Map<String, Integer> codeOrdinals = new HashMap<>();
+        for (int ordinal = 0; ordinal < codesByOrdinal.length; ordinal++) {
+            codeOrdinals.put(codesByOrdinal[ordinal], ordinal);
+        }
+        this.ordinals = Collections.unmodifiableMap(codeOrdinals);
+
+        // Subjects sharing a code (elective slots) share an ordinal and the first one's prerequisites
+        this.subjectsByOrdinal = new Subject[layout.prerequisiteMasks.length];
+        this.prerequisiteMasks = layout.prerequisiteMasks;
+        for (int position = 0; position < subjects.size(); position++) {
+            Subject subject = subjects.get(position);
+            int ordinal = subject.getOrdinal();
+            if (subjectsByOrdinal[ordinal] == null) {
+                subjectsByOrdinal[ordinal] = subject;
+            }
+        }
+
+        this.buckets = new TermBucket[layout.buckets.length];
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            int[][] positions = layout.buckets[bucket];
+            buckets[bucket] = new TermBucket(pick(subjects, positions[0]), pick(subjects, positions[1]),
+                    pick(subjects, positions[2]), pick(subjects, positions[3]));
+        }
+        this.orderedCoreSubjects = pick(subjects, layout.orderedCores);
+
+        // orderedCoreSubjects is sorted by term, so any window of terms is one contiguous range
+        this.coreTermEnds = new int[buckets.length + 1];
+        int end = 0;
+        while (end < orderedCoreSubjects.length && orderedCoreSubjects[end].getTerm() == Term.NONE) {
+            end++;
+        }
+        coreTermEnds[0] = end;
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            end += buckets[bucket].cores.length;
+            coreTermEnds[bucket + 1] = end;
+        }
+
+        // Dense ids for elective codes and how many slots of each every term offers
+        this.electiveIds = new int[subjectsByOrdinal.length];
+        Arrays.fill(electiveIds, -1);
+        int electives = 0;
+        for (Subject subject : subjects) {
+            if (isElective(subject) && electiveIds[subject.getOrdinal()] < 0) {
+                electiveIds[subject.getOrdinal()] = electives++;
+            }
+        }
+        this.electiveCapacity = new int[electives][buckets.length];
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            for (Subject elective : buckets[bucket].electives) {
+                electiveCapacity[electiveIds[elective.getOrdinal()]][bucket]++;
+            }
+        }
+
+        // Built last, from the finished index, so a prerequisite cycle fails the load
+        this.prerequisiteGraph = new PrerequisiteGraph(this);
+    }
+
+    private static List<Subject> copyWithOrdinals(List<Subject> sourceSubjects, Layout layout) {
+        List<Subject> subjects = new ArrayList<>(sourceSubjects.size());
+        for (int position = 0; position < sourceSubjects.size(); position++) {
+            subjects.add(new Subject(sourceSubjects.get(position), layout.subjectOrdinals[position]));
+        }
+        return subjects;
+    }
+
+    private static Subject[] pick(List<Subject> subjects, int[] positions) {
+        Subject[] picked = new Subject[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            picked[i] = subjects.get(positions[i]);
+        }
+        return picked;
+    }
+
+    // Helper method to check if a subject is an elective
+    public static boolean isElective(Subject subject) {
+        return subject.getCode().equals("it-el") || subject.getCode().equals("it-fre");
+    }
+
+    public Subject getSubject(String code) {
+        return subjectsByCode.get(code);
+    }
+
+    // Ordinal of a subject or prerequisite code, or -1 if this curriculum never mentions it
+    public int ordinalOf(String code) {
+        Integer ordinal = ordinals.get(code);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    // Code of an ordinal, or null if out of range
+    public String codeAt(int ordinal) {
+        return ordinal >= 0 && ordinal < codesByOrdinal.length ? codesByOrdinal[ordinal] : null;
+    }
+
+    // Number of ordinals, including prerequisite-only codes
+    public int getOrdinalCount() {
+        return codesByOrdinal.length;
+    }
+
+    // Number of ordinals owned by subjects; they come before every prerequisite-only code
+    public int getSubjectOrdinalCount() {
+        return subjectsByOrdinal.length;
+    }
+
+    // Subject owning an ordinal, or null for prerequisite-only codes
+    public Subject subjectAt(int ordinal) {
+        return ordinal >= 0 && ordinal < subjectsByOrdinal.length ? subjectsByOrdinal[ordinal] : null;
+    }
+
+    // Number of 64-bit words needed for a bitset over every ordinal
+    public int getWordCount() {
+        return (codesByOrdinal.length + 63) >>> 6;
+    }
+
+    // True once the registry has replaced this snapshot with a newer one
+    public boolean isSuperseded() {
+        return superseded;
+    }
+
+    void markSuperseded() {
+        superseded = true;
+    }
+
+    // Unique among the indexes built by this JVM, for keying caches without holding the index
+    long getSnapshotId() {
+        return snapshotId;
+    }
+
+    // Prerequisite DAG of this curriculum, built with the index
+    public PrerequisiteGraph getPrerequisiteGraph() {
+        return prerequisiteGraph;
+    }
+
+    public PrerequisiteMask prerequisiteMask(Subject subject) {
+        return prerequisiteMasks[subject.getOrdinal()];
+    }
+
+    // All subjects in curriculum order
+    public List<Subject> getSubjects() {
+        return subjects;
+    }
+
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    public int getSemestersPerYear() {
+        return SEMESTERS_PER_YEAR;
+    }
+
+    // Buckets per year, the summer term included
+    public int getTermsPerYear() {
+        return Term.TERMS_PER_YEAR;
+    }
+
+    // The term after a packed term: the summer after a second semester when this curriculum offers
+    // subjects in it, otherwise the next regular semester
+    public int nextTerm(int term) {
+        int next = Term.next(term);
+        if (Term.isSummer(next) && getTermSubjectCount(Term.year(next), Term.SUMMER) == 0) {
+            return Term.nextSemester(term);
+        }
+        return next;
+    }
+
+    public int getTermSubjectCount(int year, int semester) {
+        int bucket = bucketIndex(year, semester);
+        return bucket >= 0 ? buckets[bucket].subjects.length : 0;
+    }
+
+    // Subjects of a term in curriculum order
+    public Subject[] getTermSubjects(int year, int semester) {
+        int bucket = bucketIndex(year, semester);
+        return bucket >= 0 ? buckets[bucket].subjects.clone() : NO_SUBJECTS;
+    }
+
+    // Subjects of a term (electives included) sorted by code
+    Subject[] termSubjectsByCode(int year, int semester) {
+        int bucket = bucketIndex(year, semester);
+        return bucket >= 0 ? buckets[bucket].sortedByCode : NO_SUBJECTS;
+    }
+
+    // Non-elective subjects of a term sorted by code
+    Subject[] termCoreSubjects(int year, int semester) {
+        int bucket = bucketIndex(year, semester);
+        return bucket >= 0 ? buckets[bucket].cores : NO_SUBJECTS;
+    }
+
+    // Elective subjects of a term in curriculum order
+    Subject[] termElectives(int year, int semester) {
+        int bucket = bucketIndex(year, semester);
+        return bucket >= 0 ? buckets[bucket].electives : NO_SUBJECTS;
+    }
+
+    // Non-elective subjects sorted by term and code
+    Subject[] orderedCoreSubjects() {
+        return orderedCoreSubjects;
+    }
+
+    // End of a packed term's subjects in orderedCoreSubjects: the subjects of every term up to and
+    // including it come before this position, those of later terms from it on
+    int coreSubjectsEnd(int term) {
+        if (term == Term.NONE) {
+            return coreTermEnds[0];
+        }
+        return coreTermEnds[Math.min(Term.index(term) + 1, buckets.length)];
+    }
+
+    // Dense id of an elective code, or -1 for non-electives
+    int electiveId(Subject subject) {
+        return electiveIds[subject.getOrdinal()];
+    }
+
+    // Number of distinct elective codes
+    int getElectiveCount() {
+        return electiveCapacity.length;
+    }
+
+    // Number of slots of an elective offered in a term
+    int electiveCapacity(int electiveId, int year, int semester) {
+        int bucket = bucketIndex(year, semester);
+        return bucket >= 0 ? electiveCapacity[electiveId][bucket] : 0;
+    }
+
+    private int bucketIndex(int year, int semester) {
+        if (year < 1 || year > maxYear || semester < 1 || semester > Term.TERMS_PER_YEAR) {
+            return -1;
+        }
+        return (year - 1) * Term.TERMS_PER_YEAR + (semester - 1);
+    }
+
+    // Precomputed views of the subjects in a single term
+    private static final class TermBucket {
+        final Subject[] subjects;
+        final Subject[] sortedByCode;
+        final Subject[] cores;
+        final Subject[] electives;
+
+        TermBucket(Subject[] subjects, Subject[] sortedByCode, Subject[] cores, Subject[] electives) {
+            this.subjects = subjects;
+            this.sortedByCode = sortedByCode;
+            this.cores = cores;
+            this.electives = electives;
+        }
+    }
+
+    // Everything about an index that is derived from the subject list: ordinals, prerequisite
+    // masks and term buckets, with subjects referred to by their position in curriculum order.
+    // Computing it is the expensive part of building an index, so CurriculumSnapshot stores it.
+    static final class Layout {
+        final int maxYear;
+        final String[] codesByOrdinal;
+        final int[] subjectOrdinals; // Ordinal of the subject at each position
+        final PrerequisiteMask[] prerequisiteMasks; // Per subject ordinal
+        final int[][][] buckets; // [bucket][subjects, sortedByCode, cores, electives][positions]
+        final int[] orderedCores;
+
+        Layout(int maxYear, String[] codesByOrdinal, int[] subjectOrdinals, PrerequisiteMask[] prerequisiteMasks,
+               int[][][] buckets, int[] orderedCores) {
+            this.maxYear = maxYear;
+            this.codesByOrdinal = codesByOrdinal;
+            this.subjectOrdinals = subjectOrdinals;
+            this.prerequisiteMasks = prerequisiteMasks;
+            this.buckets = buckets;
+            this.orderedCores = orderedCores;
+        }
+
+        static Layout of(List<Subject> subjects) {
+            int highestYear = 0;
+            for (Subject subject : subjects) {
+                highestYear = Math.max(highestYear, Term.year(subject.getTerm()));
+            }
+
+            // Dense ordinals: one per distinct subject code in curriculum order, followed by
+            // prerequisite and corequisite codes that no subject in this curriculum defines
+            Map<String, Integer> codeOrdinals = new HashMap<>();
+            for (Subject subject : subjects) {
+                codeOrdinals.putIfAbsent(subject.getCode(), codeOrdinals.size());
+            }
+            int subjectOrdinalCount = codeOrdinals.size();
+            for (Subject subject : subjects) {
+                for (String prereq : subject.getPrerequisites()) {
+                    codeOrdinals.putIfAbsent(prereq, codeOrdinals.size());
+                }
+                for (String coreq : subject.getCorequisites()) {
+                    codeOrdinals.putIfAbsent(coreq, codeOrdinals.size());
+                }
+            }
+            String[] codes = new String[codeOrdinals.size()];
+            codeOrdinals.forEach((code, ordinal) -> codes[ordinal] = code);
+
+            int[] subjectOrdinals = new int[subjects.size()];
+            PrerequisiteMask[] masks = new PrerequisiteMask[subjectOrdinalCount];
+            for (int position = 0; position < subjects.size(); position++) {
+                Subject subject = subjects.get(position);
+                int ordinal = codeOrdinals.get(subject.getCode());
+                subjectOrdinals[position] = ordinal;
+                if (masks[ordinal] == null) {
+                    masks[ordinal] = subject.getRequirement() != null
+                            ? PrerequisiteMask.compile(subject.getRequirement(), codeOrdinals::get)
+                            : PrerequisiteMask.of(subject.getPrerequisites().stream()
+                                    .mapToInt(codeOrdinals::get)
+                                    .toArray());
+                }
+            }
+
+            // Group positions by term, keeping curriculum order inside each group
+            int bucketCount = highestYear * Term.TERMS_PER_YEAR;
+            List<List<Integer>> grouped = new ArrayList<>();
+            for (int i = 0; i < bucketCount; i++) {
+                grouped.add(new ArrayList<>());
+            }
+            for (int position = 0; position < subjects.size(); position++) {
+                int term = subjects.get(position).getTerm();
+                if (term != Term.NONE) {
+                    grouped.get(Term.index(term)).add(position);
+                }
+            }
+
+            Comparator<Integer> byCode = Comparator.comparing(position -> subjects.get(position).getCode());
+            int[][][] buckets = new int[bucketCount][][];
+            for (int i = 0; i < bucketCount; i++) {
+                List<Integer> term = grouped.get(i);
+                buckets[i] = new int[][]{
+                        term.stream().mapToInt(Integer::intValue).toArray(),
+                        term.stream().sorted(byCode).mapToInt(Integer::intValue).toArray(),
+                        term.stream().filter(p -> !isElective(subjects.get(p)))
+                                .sorted(byCode).mapToInt(Integer::intValue).toArray(),
+                        term.stream().filter(p -> isElective(subjects.get(p)))
+                                .mapToInt(Integer::intValue).toArray()
+                };
+            }
+
+            // Non-elective subjects ordered by term and code, for the look-ahead and catch-all
+            // phases; subjects without a term come first
+            Comparator<Integer> byTerm = Comparator.<Integer>comparingInt(p -> subjects.get(p).getTerm())
+                    .thenComparing(byCode);
+            int[] orderedCores = new int[subjects.size()];
+            int cores = 0;
+            for (int position = 0; position < subjects.size(); position++) {
+                if (!isElective(subjects.get(position))) {
+                    orderedCores[cores++] = position;
+                }
+            }
+            orderedCores = Arrays.stream(orderedCores, 0, cores).boxed()
+                    .sorted(byTerm).mapToInt(Integer::intValue).toArray();
+
+            return new Layout(highestYear, codes, subjectOrdinals, masks, buckets, orderedCores);
+        }
+    }
+
+    // Layout of this index, for writing snapshots
+    Layout layout() {
+        return Layout.of(subjects);
+    }
+}
@@ -0,0 +1,164 @@
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Streaming curriculum.xml reader. Subjects are emitted in document order as soon as their element
+// closes, with year and semester taken from the enclosing <firstYear>/<firstSem> style elements;
+// a <summer> element holds the summer term after a year's second semester.
+// No DOM is built, so memory use does not grow with the size of the file.
+//
+// Besides plain <prerequisite> entries, a subject's <prerequisites> may hold <corequisite> codes,
+// a <yearStanding> level and nested <anyOf>/<allOf> groups, e.g.
+//   <prerequisites>
+//       <prerequisite>cc-ooprog21</prerequisite>
+//       <anyOf><prerequisite>math101</prerequisite><prerequisite>cc-discret12</prerequisite></anyOf>
+//       <corequisite>cc-datalab22</corequisite>
+//       <yearStanding>2</yearStanding>
+//   </prerequisites>
+public final class CurriculumLoader {
+    private static final XMLInputFactory factory = createFactory();
+
+    private CurriculumLoader() {
+    }
+
+    public static List<Subject> load(Path xmlPath) {
+        try (InputStream in = Files.newInputStream(xmlPath)) {
+            return load(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Error parsing curriculum XML: " + e.getMessage(), e);
+        }
+    }
+
+    public static List<Subject> load(InputStream xml) {
+        List<Subject> subjects = new ArrayList<>();
+        load(xml, subjects::add);
+        return subjects;
+    }
+
+    // Parse the curriculum, handing each subject to the sink as soon as it is complete
+    public static void load(InputStream xml, Consumer<Subject> sink) {
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(xml);
+
+            // Depth 1 is the root, 2 the year, 3 the semester; subjects live anywhere below that
+            int depth = 0;
+            String year = "";
+            String semester = "";
+            Subject subject = null;
+            Deque<List<PrerequisiteExpression>> groups = new ArrayDeque<>(); // Open requirement groups
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 2) {
+                        year = extractYear(name);
+                    } else if (depth == 3) {
+                        semester = extractSemester(name);
+                    } else if (depth > 3 && subject == null && name.equals("subject")) {
+                        String code = reader.getAttributeValue(null, "subjectCode");
+                        int units = Integer.parseInt(reader.getAttributeValue(null, "units"));
+                        subject = new Subject(code != null ? code : "", units, year, semester);
+                        groups.push(new ArrayList<>());
+                    } else if (subject != null && isGroup(name)) {
+                        groups.push(new ArrayList<>());
+                    } else if (subject != null && name.equals("prerequisite")) {
+                        // getElementText consumes the matching end element
+                        groups.peek().add(PrerequisiteExpression.prerequisite(reader.getElementText()));
+                        depth--;
+                    } else if (subject != null && name.equals("corequisite")) {
+                        groups.peek().add(PrerequisiteExpression.corequisite(reader.getElementText()));
+                        depth--;
+                    } else if (subject != null && name.equals("yearStanding")) {
+                        groups.peek().add(PrerequisiteExpression.yearStanding(
+                                Integer.parseInt(reader.getElementText().trim())));
+                        depth--;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if (subject != null && name.equals("subject")) {
+                        setRequirement(subject, groups.pop());
+                        sink.accept(subject);
+                        subject = null;
+                    } else if (subject != null && isGroup(name)) {
+                        List<PrerequisiteExpression> members = groups.pop();
+                        groups.peek().add(name.equals("anyOf")
+                                ? PrerequisiteExpression.anyOf(members)
+                                : PrerequisiteExpression.allOf(members));
+                    }
+                    depth--;
+                }
+            }
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new RuntimeException("Error parsing curriculum XML: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+
+    // Elements that group requirements; everything in a subject's <prerequisites> must hold
+    private static boolean isGroup(String name) {
+        return name.equals("prerequisites") || name.equals("corequisites")
+                || name.equals("allOf") || name.equals("anyOf");
+    }
+
+    // A subject whose rule is only prerequisites keeps the plain list, exactly as written
+    private static void setRequirement(Subject subject, List<PrerequisiteExpression> requirements) {
+        // A single <prerequisites> or <corequisites> block is the rule itself
+        PrerequisiteExpression requirement = requirements.size() == 1
+                && requirements.get(0).getKind() == PrerequisiteExpression.Kind.ALL_OF
+                ? requirements.get(0) : PrerequisiteExpression.allOf(requirements);
+        if (requirement.isPrerequisiteList()) {
+            for (String code : requirement.getCodes(PrerequisiteExpression.Kind.PREREQUISITE)) {
+                subject.addPrerequisite(code);
+            }
+        } else {
+            subject.setRequirement(requirement);
+        }
+    }
+
+    // Extract year from element name
+    private static String extractYear(String nodeName) {
+        String name = nodeName.toLowerCase();
+        if (name.contains("firstyear")) return "1";
+        if (name.contains("secondyear")) return "2";
+        if (name.contains("thirdyear")) return "3";
+        if (name.contains("fourthyear")) return "4";
+        return "";
+    }
+
+    // Extract semester from element name
+    private static String extractSemester(String nodeName) {
+        String name = nodeName.toLowerCase();
+        if (name.contains("firstsem")) return "1";
+        if (name.contains("secondsem")) return "2";
+        if (name.contains("summer")) return "3";
+        return "";
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory xmlFactory = XMLInputFactory.newInstance();
+        xmlFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        xmlFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        return xmlFactory;
+    }
+}
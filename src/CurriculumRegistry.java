@@ -0,0 +1,207 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Process-wide cache of parsed curricula. Each file is parsed once and shared as an immutable
+// CurriculumIndex; it is only re-parsed when its modification time and content hash change.
+// The first load of a file uses its compiled CurriculumSnapshot instead when the modification
+// time, size and first-block checksum in its header match the file. With -Dmeryl.verifySnapshots=true
+// the whole file is hashed and the SHA-256 in the header decides instead, which also catches edits
+// that keep the time, size and first block, and accepts copied or touched files.
+public final class CurriculumRegistry {
+    public static final String DEFAULT_CURRICULUM = "src/curriculum.xml";
+
+    private static final Map<Path, Entry> entries = new ConcurrentHashMap<>();
+    private static volatile boolean verifySnapshots = Boolean.getBoolean("meryl.verifySnapshots");
+
+    private CurriculumRegistry() {
+    }
+
+    public static CurriculumIndex get() {
+        return get(DEFAULT_CURRICULUM);
+    }
+
+    // Get the current snapshot for a curriculum file, reloading it if the file changed
+    public static CurriculumIndex get(String xmlPath) {
+        Path path = Paths.get(xmlPath).toAbsolutePath().normalize();
+        return entries.computeIfAbsent(path, Entry::new).current();
+    }
+
+    // Check compiled snapshots against the full content hash of their XML from now on
+    public static void setVerifySnapshots(boolean verify) {
+        verifySnapshots = verify;
+    }
+
+    // Drop all cached snapshots so the next lookup parses the files again. The dropped snapshots
+    // count as superseded, so results cached for them are no longer served.
+    public static void clear() {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Snapshot dropped = it.next().snapshot;
+            it.remove();
+            if (dropped != null) {
+                dropped.curriculum.markSuperseded();
+            }
+        }
+    }
+
+    // Cached state for a single curriculum file
+    private static final class Entry {
+        private final Path path;
+        private volatile Snapshot snapshot;
+
+        Entry(Path path) {
+            this.path = path;
+        }
+
+        CurriculumIndex current() {
+            Snapshot cached = snapshot;
+            FileStamp stamp = FileStamp.of(path);
+            if (cached != null && cached.stamp.equals(stamp)) {
+                return cached.curriculum;
+            }
+
+            synchronized (this) {
+                cached = snapshot;
+                stamp = FileStamp.of(path);
+                if (cached != null && cached.stamp.equals(stamp)) {
+                    return cached.curriculum;
+                }
+
+                // Touched but unchanged files keep their snapshot
+                if (cached != null) {
+                    byte[] hash = hash(path);
+                    if (Arrays.equals(cached.hash, hash)) {
+                        snapshot = new Snapshot(stamp, hash, cached.curriculum);
+                        return cached.curriculum;
+                    }
+                }
+
+                long loadStart = System.nanoTime();
+                if (cached == null) {
+                    Snapshot compiled = loadCompiled(stamp);
+                    if (compiled != null) {
+                        snapshot = compiled;
+                        RecommendationMetrics.recordCurriculumLoad(System.nanoTime() - loadStart);
+                        return compiled.curriculum;
+                    }
+                }
+
+                // Parse and hash the same bytes in a single streaming pass
+                MessageDigest digest = newDigest();
+                List<Subject> subjects;
+                try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+                    subjects = CurriculumLoader.load(in);
+                } catch (IOException e) {
+                    throw new RuntimeException("Error reading curriculum file: " + e.getMessage(), e);
+                }
+
+                CurriculumIndex curriculum = new CurriculumIndex(subjects);
+                snapshot = new Snapshot(stamp, digest.digest(), curriculum);
+                RecommendationMetrics.recordCurriculumLoad(System.nanoTime() - loadStart);
+                if (cached != null) {
+                    cached.curriculum.markSuperseded();
+                }
+                return curriculum;
+            }
+        }
+
+        // Use the compiled snapshot next to the file if it was built from the current content
+        private Snapshot loadCompiled(FileStamp stamp) {
+            Path compiledPath = CurriculumSnapshot.pathFor(path);
+            if (!Files.isRegularFile(compiledPath)) {
+                return null;
+            }
+            try {
+                CurriculumSnapshot compiled = CurriculumSnapshot.open(compiledPath);
+                if (compiled.getSourceSize() != stamp.size) {
+                    return null;
+                }
+                byte[] sourceHash = compiled.getSourceHash();
+                if (verifySnapshots) {
+                    if (!Arrays.equals(sourceHash, hash(path))) {
+                        return null;
+                    }
+                } else if (compiled.getSourceLastModified() != stamp.lastModified
+                        || compiled.getSourceLeadingChecksum() != CurriculumSnapshot.leadingChecksum(path)) {
+                    return null;
+                }
+                return new Snapshot(stamp, sourceHash, compiled.toIndex());
+            } catch (IOException | RuntimeException e) {
+                // Stale formats and damaged files fall back to parsing the XML
+                return null;
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        final FileStamp stamp;
+        final byte[] hash;
+        final CurriculumIndex curriculum;
+
+        Snapshot(FileStamp stamp, byte[] hash, CurriculumIndex curriculum) {
+            this.stamp = stamp;
+            this.hash = hash;
+            this.curriculum = curriculum;
+        }
+    }
+
+    // Modification time and size of a file, used as the cheap change check
+    private static final class FileStamp {
+        final long lastModified;
+        final long size;
+
+        FileStamp(long lastModified, long size) {
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        static FileStamp of(Path path) {
+            try {
+                return new FileStamp(Files.getLastModifiedTime(path).toMillis(), Files.size(path));
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading curriculum file: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FileStamp)) return false;
+            FileStamp other = (FileStamp) o;
+            return lastModified == other.lastModified && size == other.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(lastModified, size);
+        }
+    }
+
+    // Stream the file through SHA-256 without holding its content
+    private static byte[] hash(Path path) {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1) {
+                // Reading feeds the digest
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading curriculum file: " + e.getMessage(), e);
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
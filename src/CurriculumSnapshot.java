@@ -0,0 +1,390 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Compiled binary form of a curriculum, written next to the XML as "<file>.snapshot". It holds an
+// interned string table, the subjects with their prerequisite expressions, and the index layout
+// (ordinals, compiled prerequisite masks and programs, term buckets), so loading it skips XML
+// parsing and all the sorting done by CurriculumIndex. The file is memory-mapped and read in one
+// pass, building each subject once, already carrying its ordinal. The header records the
+// modification time, size, a CRC32 of the first block and the SHA-256 of the XML it was compiled
+// from so CurriculumRegistry can tell when it is stale.
+//
+// Compile with: java CurriculumSnapshot [curriculum.xml ...]
+public final class CurriculumSnapshot {
+    private static final int MAGIC = 0x4D435552; // "MCUR"
+    private static final int VERSION = 4;
+    private static final int HEADER_BYTES = 32;
+    private static final int HASH_LENGTH = 32;
+    private static final int LEADING_BYTES = 4096; // Covered by the leading checksum
+    private static final String EXTENSION = ".snapshot";
+
+    private final ByteBuffer buffer;
+    private final long sourceLastModified;
+    private final long sourceSize;
+    private final long sourceLeadingChecksum;
+    private final byte[] sourceHash;
+    private final int bodyOffset;
+
+    private CurriculumSnapshot(ByteBuffer buffer, long sourceLastModified, long sourceSize,
+                               long sourceLeadingChecksum, byte[] sourceHash) {
+        this.buffer = buffer;
+        this.sourceLastModified = sourceLastModified;
+        this.sourceSize = sourceSize;
+        this.sourceLeadingChecksum = sourceLeadingChecksum;
+        this.sourceHash = sourceHash;
+        this.bodyOffset = buffer.position();
+    }
+
+    public static void main(String[] args) {
+        String[] sources = args.length > 0 ? args : new String[]{CurriculumRegistry.DEFAULT_CURRICULUM};
+        for (String source : sources) {
+            Path written = compile(Paths.get(source));
+            System.out.println("Wrote " + written);
+        }
+    }
+
+    // Where the compiled snapshot of a curriculum file lives
+    public static Path pathFor(Path xmlPath) {
+        return xmlPath.resolveSibling(xmlPath.getFileName() + EXTENSION);
+    }
+
+    // Parse a curriculum file and write its snapshot next to it
+    public static Path compile(Path xmlPath) {
+        Path out = pathFor(xmlPath);
+        try {
+            long lastModified = Files.getLastModifiedTime(xmlPath).toMillis();
+            long size = Files.size(xmlPath);
+            long leadingChecksum = leadingChecksum(xmlPath);
+
+            MessageDigest digest = newDigest();
+            List<Subject> subjects;
+            try (InputStream in = new DigestInputStream(Files.newInputStream(xmlPath), digest)) {
+                subjects = CurriculumLoader.load(in);
+            }
+
+            // Write to a temporary file first so readers never map a half-written snapshot
+            Path temp = out.resolveSibling(out.getFileName() + ".tmp");
+            try (OutputStream file = Files.newOutputStream(temp)) {
+                write(new CurriculumIndex(subjects), lastModified, size, leadingChecksum, digest.digest(), file);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return out;
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing curriculum snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    // CRC32 of the first block of a file, the cheap content check made alongside its mtime and size
+    static long leadingChecksum(Path path) throws IOException {
+        byte[] leading = new byte[LEADING_BYTES];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            for (int read; length < leading.length && (read = in.read(leading, length, leading.length - length)) > 0; ) {
+                length += read;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(leading, 0, length);
+        return crc.getValue();
+    }
+
+    // Serialize an index together with the stamp, leading checksum and hash of the XML it came from
+    static void write(CurriculumIndex index, long sourceLastModified, long sourceSize, long sourceLeadingChecksum,
+                      byte[] sourceHash, OutputStream target) throws IOException {
+        List<Subject> subjects = index.getSubjects();
+        CurriculumIndex.Layout layout = index.layout();
+
+        // Every code, year and semester string is stored once and referred to by id
+        Map<String, Integer> stringIds = new LinkedHashMap<>();
+        for (Subject subject : subjects) {
+            stringIds.putIfAbsent(subject.getCode(), stringIds.size());
+            stringIds.putIfAbsent(subject.getYear(), stringIds.size());
+            stringIds.putIfAbsent(subject.getSemester(), stringIds.size());
+            for (String prereq : subject.getPrerequisites()) {
+                stringIds.putIfAbsent(prereq, stringIds.size());
+            }
+            for (String coreq : subject.getCorequisites()) {
+                stringIds.putIfAbsent(coreq, stringIds.size());
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(sourceLastModified);
+        out.writeLong(sourceSize);
+        out.writeLong(sourceLeadingChecksum);
+        out.write(sourceHash);
+
+        out.writeInt(layout.maxYear);
+        out.writeInt(index.getTermsPerYear());
+
+        out.writeInt(stringIds.size());
+        for (String value : stringIds.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        // The layout's ordinals come first so subjects can be read straight into the index
+        out.writeInt(layout.codesByOrdinal.length);
+        for (String code : layout.codesByOrdinal) {
+            out.writeInt(stringIds.get(code));
+        }
+        writeInts(out, layout.subjectOrdinals);
+
+        out.writeInt(subjects.size());
+        for (Subject subject : subjects) {
+            out.writeInt(stringIds.get(subject.getCode()));
+            out.writeInt(subject.getUnits());
+            out.writeInt(stringIds.get(subject.getYear()));
+            out.writeInt(stringIds.get(subject.getSemester()));
+            out.writeInt(subject.getPrerequisites().size());
+            for (String prereq : subject.getPrerequisites()) {
+                out.writeInt(stringIds.get(prereq));
+            }
+            out.writeBoolean(subject.getRequirement() != null);
+            if (subject.getRequirement() != null) {
+                writeRequirement(out, subject.getRequirement(), stringIds);
+            }
+        }
+
+        out.writeInt(layout.prerequisiteMasks.length);
+        for (PrerequisiteMask mask : layout.prerequisiteMasks) {
+            int[] wordIndexes = mask.wordIndexes();
+            long[] wordBits = mask.wordBits();
+            out.writeInt(wordIndexes.length);
+            for (int i = 0; i < wordIndexes.length; i++) {
+                out.writeInt(wordIndexes[i]);
+                out.writeLong(wordBits[i]);
+            }
+
+            // Programs of subjects with prerequisite expressions; -1 for plain masks
+            int[] program = mask.program();
+            out.writeInt(program == null ? -1 : program.length / PrerequisiteMask.INSTRUCTION_SIZE);
+            if (program != null) {
+                for (int i = 0; i < program.length; i++) {
+                    out.writeInt(program[i]);
+                }
+                for (long bits : mask.programBits()) {
+                    out.writeLong(bits);
+                }
+            }
+        }
+
+        out.writeInt(layout.buckets.length);
+        for (int[][] bucket : layout.buckets) {
+            for (int[] positions : bucket) {
+                writeInts(out, positions);
+            }
+        }
+        writeInts(out, layout.orderedCores);
+        out.flush();
+    }
+
+    // Map a snapshot file and check its header
+    public static CurriculumSnapshot open(Path snapshotPath) {
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES + HASH_LENGTH || buffer.getInt() != MAGIC) {
+                throw new RuntimeException("Not a curriculum snapshot: " + snapshotPath);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new RuntimeException("Unsupported curriculum snapshot version " + version + ": " + snapshotPath);
+            }
+            long lastModified = buffer.getLong();
+            long size = buffer.getLong();
+            long leadingChecksum = buffer.getLong();
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+            return new CurriculumSnapshot(buffer, lastModified, size, leadingChecksum, hash);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading curriculum snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    public long getSourceLastModified() {
+        return sourceLastModified;
+    }
+
+    public long getSourceSize() {
+        return sourceSize;
+    }
+
+    public long getSourceLeadingChecksum() {
+        return sourceLeadingChecksum;
+    }
+
+    public byte[] getSourceHash() {
+        return sourceHash.clone();
+    }
+
+    // Rebuild the index straight from the stored layout
+    public CurriculumIndex toIndex() {
+        ByteBuffer in = buffer.duplicate();
+        in.position(bodyOffset);
+        try {
+            int maxYear = in.getInt();
+            int termsPerYear = in.getInt();
+            if (termsPerYear != Term.TERMS_PER_YEAR) {
+                throw new RuntimeException("Curriculum snapshot uses " + termsPerYear + " terms per year");
+            }
+
+            // Each string is decoded once, so equal codes share a single String instance
+            String[] strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[in.getInt()];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            String[] codesByOrdinal = new String[in.getInt()];
+            for (int i = 0; i < codesByOrdinal.length; i++) {
+                codesByOrdinal[i] = strings[in.getInt()];
+            }
+            int[] subjectOrdinals = readInts(in);
+
+            int subjectCount = in.getInt();
+            if (subjectCount != subjectOrdinals.length) {
+                throw new IllegalArgumentException("Subject count does not match the layout");
+            }
+            List<Subject> subjects = new ArrayList<>(subjectCount);
+            for (int i = 0; i < subjectCount; i++) {
+                String code = strings[in.getInt()];
+                int units = in.getInt();
+                Subject subject = new Subject(code, units, strings[in.getInt()], strings[in.getInt()],
+                        subjectOrdinals[i]);
+                int prereqs = in.getInt();
+                for (int j = 0; j < prereqs; j++) {
+                    subject.addPrerequisite(strings[in.getInt()]);
+                }
+                if (in.get() != 0) {
+                    subject.setRequirement(readRequirement(in, strings));
+                }
+                subjects.add(subject);
+            }
+
+            PrerequisiteMask[] masks = new PrerequisiteMask[in.getInt()];
+            for (int i = 0; i < masks.length; i++) {
+                int words = in.getInt();
+                int[] wordIndexes = new int[words];
+                long[] wordBits = new long[words];
+                for (int j = 0; j < words; j++) {
+                    wordIndexes[j] = in.getInt();
+                    wordBits[j] = in.getLong();
+                }
+                int instructions = in.getInt();
+                if (instructions < 0) {
+                    masks[i] = PrerequisiteMask.ofWords(wordIndexes, wordBits);
+                } else {
+                    int[] program = new int[instructions * PrerequisiteMask.INSTRUCTION_SIZE];
+                    for (int j = 0; j < program.length; j++) {
+                        program[j] = in.getInt();
+                    }
+                    long[] programBits = new long[instructions];
+                    for (int j = 0; j < instructions; j++) {
+                        programBits[j] = in.getLong();
+                    }
+                    masks[i] = PrerequisiteMask.ofProgram(program, programBits);
+                }
+            }
+
+            int[][][] buckets = new int[in.getInt()][][];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new int[][]{readInts(in), readInts(in), readInts(in), readInts(in)};
+            }
+            int[] orderedCores = readInts(in);
+
+            return CurriculumIndex.ofLayout(new CurriculumIndex.Layout(maxYear, codesByOrdinal,
+                    subjectOrdinals, masks, buckets, orderedCores), subjects);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+                 | IllegalArgumentException e) {
+            throw new RuntimeException("Corrupt curriculum snapshot", e);
+        }
+    }
+
+    // Expression tree in prefix order: kind, then the code id, the year, or the child count
+    private static void writeRequirement(DataOutputStream out, PrerequisiteExpression requirement,
+                                         Map<String, Integer> stringIds) throws IOException {
+        out.writeByte(requirement.getKind().ordinal());
+        switch (requirement.getKind()) {
+            case PREREQUISITE:
+            case COREQUISITE:
+                out.writeInt(stringIds.get(requirement.getCode()));
+                break;
+            case YEAR_STANDING:
+                out.writeInt(requirement.getYear());
+                break;
+            default:
+                out.writeInt(requirement.getChildren().size());
+                for (PrerequisiteExpression child : requirement.getChildren()) {
+                    writeRequirement(out, child, stringIds);
+                }
+                break;
+        }
+    }
+
+    private static PrerequisiteExpression readRequirement(ByteBuffer in, String[] strings) {
+        PrerequisiteExpression.Kind kind = PrerequisiteExpression.Kind.values()[in.get()];
+        switch (kind) {
+            case PREREQUISITE:
+                return PrerequisiteExpression.prerequisite(strings[in.getInt()]);
+            case COREQUISITE:
+                return PrerequisiteExpression.corequisite(strings[in.getInt()]);
+            case YEAR_STANDING:
+                return PrerequisiteExpression.yearStanding(in.getInt());
+            default:
+                List<PrerequisiteExpression> children = new ArrayList<>();
+                for (int count = in.getInt(); count > 0; count--) {
+                    children.add(readRequirement(in, strings));
+                }
+                return kind == PrerequisiteExpression.Kind.ANY_OF
+                        ? PrerequisiteExpression.anyOf(children)
+                        : PrerequisiteExpression.allOf(children);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
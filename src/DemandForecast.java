@@ -0,0 +1,372 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+// Next-term demand per subject, broken down by program and year level, for deciding how many
+// sections to open. Every stored student's recommendations are computed in parallel and counted
+// as a map-reduce: the store is read in one sequential pass and handed out in chunks, each worker
+// recommends into its own buffer (recommendInto, no cache) and counts into its own histogram (plain
+// int arrays indexed by year level and subject ordinal), and the histograms are added together once
+// every worker is done. Workers share no lock or counter.
+//
+// The year level is the one the student will be in next term; new students are first years.
+// Output columns: program,yearLevel,subject,students
+public class DemandForecast {
+    private static final int CHUNK_SIZE = 256;
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int YEAR_LEVELS = 4;
+    private static final String OUTPUT_HEADER = "program,yearLevel,subject,students";
+    private static final Student[] END = new Student[0]; // Tells a worker there are no more chunks
+
+    private final School school;
+    private final StudentEval engine;
+    private final Program defaultProgram;
+    private final int workers;
+
+    private Histogram demand;
+    private long students;
+    private long errors;
+
+    public DemandForecast(School school, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Workers must be at least 1");
+        }
+        this.school = school;
+        this.workers = workers;
+        this.defaultProgram = school.getPrograms().iterator().next();
+        // Every student is seen once per run, so a cache would only add a lock to the map phase
+        this.engine = new StudentEval(school, defaultProgram.getProgramCode(), null);
+    }
+
+    // Forecast from every student in a store
+    public void run(StudentStore store) throws InterruptedException {
+        try (Stream<Student> stored = store.stream()) {
+            run(stored.iterator());
+        }
+    }
+
+    // Forecast from any sequence of students, replacing the previous results
+    public void run(Iterator<Student> population) throws InterruptedException {
+        // Resolve each program's evaluator and curriculum once; every worker evaluates and counts
+        // against them
+        StudentEval pinned = engine.pinCurricula();
+        Map<String, StudentEval> evals = new HashMap<>();
+        Map<String, CurriculumIndex> curricula = new LinkedHashMap<>();
+        int maxSubjects = 0;
+        for (Program program : school.getPrograms()) {
+            StudentEval eval = pinned.evalFor(program);
+            CurriculumIndex curriculum = pinned.curriculumFor(program);
+            evals.put(program.getProgramCode(), eval);
+            curricula.put(program.getProgramCode(), curriculum);
+            maxSubjects = Math.max(maxSubjects, curriculum.getSubjects().size());
+        }
+
+        BlockingQueue<Student[]> chunks = new ArrayBlockingQueue<>(workers * CHUNKS_PER_WORKER);
+        List<Worker> pool = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            Worker worker = new Worker(chunks, evals, new Histogram(curricula), new Subject[maxSubjects]);
+            worker.setName("demand-forecast-" + i);
+            worker.setDaemon(true);
+            pool.add(worker);
+            worker.start();
+        }
+
+        boolean handedOut = false;
+        try {
+            // Map: hand out the population in chunks, waiting whenever every worker is busy
+            Student[] chunk = new Student[CHUNK_SIZE];
+            int filled = 0;
+            while (population.hasNext()) {
+                chunk[filled++] = population.next();
+                if (filled == CHUNK_SIZE) {
+                    chunks.put(chunk);
+                    chunk = new Student[CHUNK_SIZE];
+                    filled = 0;
+                }
+            }
+            if (filled > 0) {
+                Student[] last = new Student[filled];
+                System.arraycopy(chunk, 0, last, 0, filled);
+                chunks.put(last);
+            }
+            for (int i = 0; i < workers; i++) {
+                chunks.put(END);
+            }
+            handedOut = true;
+        } finally {
+            if (!handedOut) {
+                for (Worker worker : pool) {
+                    worker.interrupt();
+                }
+            }
+        }
+
+        // Reduce: add the workers' histograms together
+        Histogram total = new Histogram(curricula);
+        long counted = 0;
+        long failed = 0;
+        for (Worker worker : pool) {
+            worker.join();
+            if (worker.failure != null) {
+                throw new IllegalStateException("Forecast worker failed", worker.failure);
+            }
+            total.add(worker.histogram);
+            counted += worker.students;
+            failed += worker.errors;
+        }
+
+        demand = total;
+        students = counted;
+        errors = failed;
+    }
+
+    // Students counted in the last run, including those whose recommendations failed
+    public long getStudents() {
+        return students;
+    }
+
+    // Students skipped because their recommendations could not be computed
+    public long getErrors() {
+        return errors;
+    }
+
+    // Students expected to take a subject next term in one program and year level
+    public int getDemand(String programCode, int yearLevel, String subjectCode) {
+        Program program = school.getProgram(programCode);
+        if (demand == null || program == null || yearLevel < 1 || yearLevel > YEAR_LEVELS) {
+            return 0;
+        }
+        return demand.get(program.getProgramCode(), yearLevel, subjectCode);
+    }
+
+    // Students expected to take a subject next term across every program and year level
+    public int getTotalDemand(String subjectCode) {
+        int total = 0;
+        for (Program program : school.getPrograms()) {
+            for (int year = 1; year <= YEAR_LEVELS; year++) {
+                total += getDemand(program.getProgramCode(), year, subjectCode);
+            }
+        }
+        return total;
+    }
+
+    // One CSV row per program, year level and subject with any demand, in curriculum order
+    public void write(Path output) throws IOException {
+        if (demand == null) {
+            throw new IllegalStateException("Run the forecast first");
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(OUTPUT_HEADER);
+            writer.newLine();
+            for (Map.Entry<String, CurriculumIndex> program : demand.curricula.entrySet()) {
+                int[][] counts = demand.counts.get(program.getKey());
+                CurriculumIndex curriculum = program.getValue();
+                for (int year = 1; year <= YEAR_LEVELS; year++) {
+                    for (int ordinal = 0; ordinal < counts[year].length; ordinal++) {
+                        if (counts[year][ordinal] > 0) {
+                            writeRow(writer, program.getKey(), year, curriculum.codeAt(ordinal), counts[year][ordinal]);
+                        }
+                    }
+                    for (Map.Entry<String, int[]> other : demand.othersOf(program.getKey()).entrySet()) {
+                        if (other.getValue()[year] > 0) {
+                            writeRow(writer, program.getKey(), year, other.getKey(), other.getValue()[year]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeRow(BufferedWriter writer, String program, int year, String code, int count)
+            throws IOException {
+        writer.write(program + "," + year + "," + code + "," + count);
+        writer.newLine();
+    }
+
+    // Year level of the term after the current one, as StudentEval recommends for; a summer term
+    // stays in the year it follows
+    private static int nextYearLevel(CurriculumIndex curriculum, int currentYear, int currentSemester) {
+        return Math.min(YEAR_LEVELS, Term.year(curriculum.nextTerm(Term.of(currentYear, currentSemester))));
+    }
+
+    // Counts one worker's chunks into its histogram until it takes the END marker
+    private final class Worker extends Thread {
+        private final BlockingQueue<Student[]> chunks;
+        private final Map<String, StudentEval> evals;
+        final Histogram histogram;
+        private Subject[] recommended;
+        long students;
+        long errors;
+        volatile Throwable failure;
+
+        Worker(BlockingQueue<Student[]> chunks, Map<String, StudentEval> evals, Histogram histogram,
+               Subject[] recommended) {
+            this.chunks = chunks;
+            this.evals = evals;
+            this.histogram = histogram;
+            this.recommended = recommended;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Student[] chunk = chunks.take(); chunk != END; chunk = chunks.take()) {
+                    for (Student student : chunk) {
+                        students++;
+                        try {
+                            count(student);
+                        } catch (RuntimeException e) {
+                            errors++;
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable t) {
+                failure = t;
+                drain();
+            }
+        }
+
+        // Count one student's recommendations, as getRecommendedSubjects(Student) gives them
+        private void count(Student student) {
+            Program program = student.getProgramCode() == null ? defaultProgram
+                    : school.getProgram(student.getProgramCode());
+            StudentEval eval = program == null ? null : evals.get(program.getProgramCode());
+            if (eval == null) {
+                throw new IllegalArgumentException("Unknown program: " + student.getProgramCode());
+            }
+            String programCode = program.getProgramCode();
+            CurriculumIndex curriculum = histogram.curricula.get(programCode);
+
+            if (student.isNew()) {
+                for (Subject subject : curriculum.getTermSubjects(1, 1)) {
+                    histogram.increment(programCode, 1, subject.getCode());
+                }
+                return;
+            }
+            if (student.getAcademicHistory() == null) {
+                throw new IllegalArgumentException("Academic history cannot be null");
+            }
+            AcademicRecord record = AcademicRecord.of(curriculum, student.getAcademicHistory());
+            int count = eval.recommendInto(record, student.getCurrentYear(), student.getCurrentSemester(), recommended);
+            if (count > recommended.length) {
+                recommended = new Subject[count];
+                count = eval.recommendInto(record, student.getCurrentYear(), student.getCurrentSemester(), recommended);
+            }
+            int yearLevel = nextYearLevel(curriculum, student.getCurrentYear(), student.getCurrentSemester());
+            for (int i = 0; i < count; i++) {
+                histogram.increment(programCode, yearLevel, recommended[i].getCode());
+            }
+        }
+
+        // Keep taking chunks after a failure so the reader is never stuck waiting for room
+        private void drain() {
+            try {
+                while (chunks.take() != END) {
+                    // Discard
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Demand per program as counts[yearLevel][subject ordinal] of the curriculum snapshot taken
+    // pinned when the run started. Codes missing from that snapshot are kept by code in a small
+    // side map.
+    private static final class Histogram {
+        final Map<String, CurriculumIndex> curricula;
+        final Map<String, int[][]> counts = new HashMap<>();
+        final Map<String, Map<String, int[]>> others = new HashMap<>();
+
+        Histogram(Map<String, CurriculumIndex> curricula) {
+            this.curricula = curricula;
+            for (Map.Entry<String, CurriculumIndex> program : curricula.entrySet()) {
+                counts.put(program.getKey(), new int[YEAR_LEVELS + 1][program.getValue().getSubjectOrdinalCount()]);
+            }
+        }
+
+        void increment(String program, int yearLevel, String code) {
+            int ordinal = curricula.get(program).ordinalOf(code);
+            int[][] programCounts = counts.get(program);
+            if (ordinal >= 0 && ordinal < programCounts[yearLevel].length) {
+                programCounts[yearLevel][ordinal]++;
+            } else {
+                others.computeIfAbsent(program, key -> new LinkedHashMap<>())
+                        .computeIfAbsent(code, key -> new int[YEAR_LEVELS + 1])[yearLevel]++;
+            }
+        }
+
+        int get(String program, int yearLevel, String code) {
+            int ordinal = curricula.get(program).ordinalOf(code);
+            int[][] programCounts = counts.get(program);
+            if (ordinal >= 0 && ordinal < programCounts[yearLevel].length) {
+                return programCounts[yearLevel][ordinal];
+            }
+            int[] other = othersOf(program).get(code);
+            return other == null ? 0 : other[yearLevel];
+        }
+
+        Map<String, int[]> othersOf(String program) {
+            return others.getOrDefault(program, Collections.emptyMap());
+        }
+
+        // Add another histogram over the same snapshot into this one
+        void add(Histogram other) {
+            for (Map.Entry<String, int[][]> program : other.counts.entrySet()) {
+                int[][] into = counts.get(program.getKey());
+                for (int year = 1; year <= YEAR_LEVELS; year++) {
+                    int[] from = program.getValue()[year];
+                    for (int ordinal = 0; ordinal < from.length; ordinal++) {
+                        into[year][ordinal] += from[ordinal];
+                    }
+                }
+            }
+            for (Map.Entry<String, Map<String, int[]>> program : other.others.entrySet()) {
+                for (Map.Entry<String, int[]> code : program.getValue().entrySet()) {
+                    int[] into = others.computeIfAbsent(program.getKey(), key -> new LinkedHashMap<>())
+                            .computeIfAbsent(code.getKey(), key -> new int[YEAR_LEVELS + 1]);
+                    for (int year = 1; year <= YEAR_LEVELS; year++) {
+                        into[year] += code.getValue()[year];
+                    }
+                }
+            }
+        }
+    }
+
+    // Usage: DemandForecast [students.log] [output.csv] [workers]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path input = Paths.get(args.length > 0 ? args[0] : StudentStore.DEFAULT_STORE);
+        Path output = Paths.get(args.length > 1 ? args[1] : "demand.csv");
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        if (!StudentStore.isStore(input)) {
+            System.err.println("Usage: DemandForecast [students.log] [output.csv] [workers]");
+            System.exit(2);
+        }
+
+        DemandForecast forecast = new DemandForecast(School.getDefault(), workers);
+        long start = System.nanoTime();
+        try (StudentStore store = StudentStore.open(input)) {
+            forecast.run(store);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        forecast.write(output);
+
+        System.err.printf("Forecast %d students in %.2f s (%.0f students/s), %d errors%n",
+                forecast.getStudents(), seconds, forecast.getStudents() / Math.max(seconds, 1e-9), forecast.getErrors());
+    }
+}
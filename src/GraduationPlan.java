@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Result of GraduationPlanner: the remaining terms in order, plus any subjects that can never be
+// scheduled (a prerequisite missing from the curriculum, more units than a term allows, or a rule
+// the planner cannot meet, such as two subjects that are each other's corequisite).
+public final class GraduationPlan {
+    private final List<Term> terms;
+    private final List<Subject> unschedulable;
+    private final boolean optimal;
+
+    GraduationPlan(List<Term> terms, List<Subject> unschedulable, boolean optimal) {
+        this.terms = Collections.unmodifiableList(new ArrayList<>(terms));
+        this.unschedulable = Collections.unmodifiableList(new ArrayList<>(unschedulable));
+        this.optimal = optimal;
+    }
+
+    public List<Term> getTerms() {
+        return terms;
+    }
+
+    public int getTermCount() {
+        return terms.size();
+    }
+
+    public List<Subject> getUnschedulable() {
+        return unschedulable;
+    }
+
+    // False when the planner ran out of time before proving no shorter plan exists, or planned a
+    // subject's rule more strictly than written
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    // Check if following the plan passes every subject in the curriculum
+    public boolean isComplete() {
+        return unschedulable.isEmpty();
+    }
+
+    // One planned term; years past the curriculum's last year are extra terms
+    public static final class Term {
+        private final int year;
+        private final int semester;
+        private final List<Subject> subjects;
+        private final int units;
+
+        Term(int year, int semester, List<Subject> subjects) {
+            this.year = year;
+            this.semester = semester;
+            this.subjects = Collections.unmodifiableList(new ArrayList<>(subjects));
+            this.units = subjects.stream().mapToInt(Subject::getUnits).sum();
+        }
+
+        public int getYear() {
+            return year;
+        }
+
+        public int getSemester() {
+            return semester;
+        }
+
+        public List<Subject> getSubjects() {
+            return subjects;
+        }
+
+        public int getUnits() {
+            return units;
+        }
+    }
+}
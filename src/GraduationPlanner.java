@@ -0,0 +1,588 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Term-by-term plan to graduation with the fewest remaining terms. Every subject not yet passed is
+// scheduled once its prerequisites were passed in an earlier term, and no term goes over the unit
+// cap. Like the catch-all recommendation phase, any subject may be taken in any term.
+//
+// Subjects with a richer rule (anyOf, corequisites, year standing) are checked with their compiled
+// PrerequisiteMask. The plan schedules them after every named subject that can be planned, anyOf
+// alternatives and corequisites included, which always meets the rule, and delays them until the
+// year standing the rule needs. That can be stricter than the rule, so such plans are not reported
+// as optimal. A subject whose rule cannot be met that way is unschedulable.
+//
+// The search works on the remaining subjects only, with passed sets as bitsets. A greedy
+// critical-path plan gives the upper bound; iterative deepening then looks for shorter plans,
+// pruning with the longest remaining prerequisite chain and the units left per chain height,
+// remembering states already shown to need more terms, and only trying term loads that cannot take
+// another subject. Past the time budget the best plan found so far is returned.
+public final class GraduationPlanner {
+    static final long DEFAULT_BUDGET_NANOS = 250_000_000; // 250 ms
+    private static final int MAX_MEMO_STATES = 1 << 20;
+    private static final int MAX_UNIT_MODULUS = 6; // Largest unit step tried by the capacity bound
+    private static final int MAX_WINDOW_TERMS = 16; // Longer plans skip the cubic window check
+
+    private final CurriculumIndex curriculum;
+    private final int maxUnits;
+    private final long budgetNanos;
+
+    public GraduationPlanner(CurriculumIndex curriculum, int maxUnits) {
+        this(curriculum, maxUnits, DEFAULT_BUDGET_NANOS);
+    }
+
+    public GraduationPlanner(CurriculumIndex curriculum, int maxUnits, long budgetNanos) {
+        if (maxUnits < 1) {
+            throw new IllegalArgumentException("Unit cap must be at least 1");
+        }
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Planner time budget must be positive");
+        }
+        this.curriculum = curriculum;
+        this.maxUnits = maxUnits;
+        this.budgetNanos = budgetNanos;
+    }
+
+    // Plan starting with the given term (the one after the student's current term)
+    public GraduationPlan plan(AcademicRecord record, int firstYear, int firstSemester) {
+        return new Search(record, firstYear, firstSemester).run(firstYear, firstSemester);
+    }
+
+    // State of one planning call; subjects are referred to by local index in topological order.
+    // A year standing delay is a chain of zero-unit placeholders (null subjects) ahead of the
+    // subjects, one per term to wait, that the delayed subject depends on.
+    private final class Search {
+        final long deadline = System.nanoTime() + budgetNanos;
+        final Subject[] subjects;
+        final int[] units;
+        final int[][] prerequisites;
+        final int[][] dependents;
+        final List<Subject> unschedulable = new ArrayList<>();
+        final int words;
+        final Map<State, Integer> infeasible = new HashMap<>(); // State -> terms it cannot finish in
+        final List<long[]> path = new ArrayList<>();
+        long nodes;
+        boolean timedOut;
+        boolean stricterThanRules; // Some rule was planned with more prerequisites than it needs
+
+        Search(AcademicRecord record, int firstYear, int firstSemester) {
+            PrerequisiteGraph graph = curriculum.getPrerequisiteGraph();
+            int[] local = new int[curriculum.getOrdinalCount()];
+            Arrays.fill(local, -1);
+            long[] passed = new long[curriculum.getWordCount()];
+            for (int ordinal = 0; ordinal < curriculum.getOrdinalCount(); ordinal++) {
+                if (record.hasPassed(ordinal)) {
+                    passed[ordinal >>> 6] |= 1L << ordinal;
+                }
+            }
+
+            // Remaining subjects in planning order, with the ordinals each waits for. A subject
+            // whose prerequisite can never be passed (undefined, over the unit cap, or itself
+            // blocked) or whose rule is not met after everything it waits for cannot be planned.
+            List<Subject> remaining = new ArrayList<>();
+            List<int[]> waitsFor = new ArrayList<>();
+            List<Integer> delays = new ArrayList<>();
+            int longestDelay = 0;
+            for (Subject subject : planningOrder(graph, record)) {
+                int ordinal = subject.getOrdinal();
+                PrerequisiteExpression rule = subject.getRequirement();
+                boolean plain = rule == null || rule.isPrerequisiteList();
+
+                // A corequisite only counts once planned, so one later in the order is left out
+                List<String> named = namedSubjects(subject);
+                boolean reachable = subject.getUnits() <= maxUnits;
+                Set<Integer> before = new LinkedHashSet<>();
+                for (String code : named) {
+                    int namedOrdinal = curriculum.ordinalOf(code);
+                    if (record.hasPassed(namedOrdinal)) {
+                        continue;
+                    }
+                    if (local[namedOrdinal] >= 0) {
+                        before.add(namedOrdinal);
+                    } else if (plain) {
+                        reachable = false;
+                    }
+                }
+
+                int delay = 0;
+                if (reachable && !plain) {
+                    long[] met = passed.clone();
+                    for (int namedOrdinal : before) {
+                        met[namedOrdinal >>> 6] |= 1L << namedOrdinal;
+                    }
+                    delay = termsUntilMet(curriculum.prerequisiteMask(subject), met, rule, firstYear, firstSemester);
+                    reachable = delay >= 0;
+                    if (reachable) {
+                        Set<Integer> required = new HashSet<>();
+                        for (String code : rule.getRequiredCodes()) {
+                            required.add(curriculum.ordinalOf(code));
+                        }
+                        stricterThanRules |= !required.containsAll(before);
+                    }
+                }
+
+                if (reachable) {
+                    local[ordinal] = remaining.size();
+                    remaining.add(subject);
+                    waitsFor.add(before.stream().mapToInt(Integer::intValue).toArray());
+                    delays.add(delay);
+                    longestDelay = Math.max(longestDelay, delay);
+                } else {
+                    unschedulable.add(subject);
+                }
+            }
+
+            // Placeholders take local indexes 0 to placeholders - 1, each after the one before
+            int placeholders = longestDelay;
+            int count = placeholders + remaining.size();
+            this.subjects = new Subject[count];
+            this.units = new int[count];
+            this.prerequisites = new int[count][];
+            for (int i = 0; i < placeholders; i++) {
+                prerequisites[i] = i == 0 ? new int[0] : new int[]{i - 1};
+            }
+            for (int r = 0; r < remaining.size(); r++) {
+                int i = placeholders + r;
+                subjects[i] = remaining.get(r);
+                units[i] = subjects[i].getUnits();
+                int delay = delays.get(r);
+                prerequisites[i] = IntStream.concat(
+                                Arrays.stream(waitsFor.get(r)).map(ordinal -> placeholders + local[ordinal]),
+                                delay > 0 ? IntStream.of(delay - 1) : IntStream.empty())
+                        .toArray();
+            }
+
+            List<List<Integer>> reverse = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                reverse.add(new ArrayList<>());
+            }
+            for (int i = 0; i < count; i++) {
+                for (int prereq : prerequisites[i]) {
+                    reverse.get(prereq).add(i);
+                }
+            }
+            this.dependents = new int[count][];
+            for (int i = 0; i < count; i++) {
+                dependents[i] = reverse.get(i).stream().mapToInt(Integer::intValue).toArray();
+            }
+            this.words = (count + 63) >>> 6;
+        }
+
+        // Subjects not yet passed, each after everything its rule names: prerequisites, and
+        // corequisites of richer rules. Subjects on a corequisite cycle (each needing the other in
+        // the same term) never become ready and come last, where they turn out unschedulable.
+        private List<Subject> planningOrder(PrerequisiteGraph graph, AcademicRecord record) {
+            List<Subject> pending = new ArrayList<>();
+            for (Subject subject : graph.getTopologicalOrder()) {
+                if (!record.hasPassed(subject.getOrdinal())) {
+                    pending.add(subject);
+                }
+            }
+
+            Map<Integer, List<Subject>> readers = new HashMap<>();
+            Map<Subject, Integer> waiting = new IdentityHashMap<>();
+            ArrayDeque<Subject> ready = new ArrayDeque<>();
+            for (Subject subject : pending) {
+                int count = 0;
+                for (String code : new LinkedHashSet<>(namedSubjects(subject))) {
+                    int ordinal = curriculum.ordinalOf(code);
+                    if (!record.hasPassed(ordinal) && curriculum.subjectAt(ordinal) != null) {
+                        readers.computeIfAbsent(ordinal, key -> new ArrayList<>()).add(subject);
+                        count++;
+                    }
+                }
+                waiting.put(subject, count);
+                if (count == 0) {
+                    ready.add(subject);
+                }
+            }
+
+            List<Subject> order = new ArrayList<>(pending.size());
+            while (!ready.isEmpty()) {
+                Subject subject = ready.poll();
+                order.add(subject);
+                for (Subject reader : readers.getOrDefault(subject.getOrdinal(), Collections.emptyList())) {
+                    if (waiting.merge(reader, -1, Integer::sum) == 0) {
+                        ready.add(reader);
+                    }
+                }
+            }
+            if (order.size() < pending.size()) {
+                for (Subject subject : pending) {
+                    if (waiting.get(subject) > 0) {
+                        order.add(subject);
+                    }
+                }
+            }
+            return order;
+        }
+
+        // Codes the subject waits for when planned: its prerequisites, plus its corequisites when
+        // the rule is richer than a prerequisite list
+        private List<String> namedSubjects(Subject subject) {
+            PrerequisiteExpression rule = subject.getRequirement();
+            if (rule == null || rule.isPrerequisiteList()) {
+                return subject.getPrerequisites();
+            }
+            List<String> named = new ArrayList<>(subject.getPrerequisites());
+            named.addAll(subject.getCorequisites());
+            return named;
+        }
+
+        // Regular terms from the first planned one until the rule holds with met passed (and
+        // counted as taken alongside), or -1 if no year standing the rule names is enough. Rules
+        // only grow easier with more passed subjects and higher years, so the first match stands.
+        private int termsUntilMet(PrerequisiteMask mask, long[] met, PrerequisiteExpression rule,
+                                  int firstYear, int firstSemester) {
+            int lastYear = Math.max(firstYear, highestYearStanding(rule));
+            int term = Term.of(firstYear, firstSemester);
+            for (int waited = 0; Term.year(term) <= lastYear; waited++) {
+                if (mask.isSatisfiedBy(met, met, Term.year(term))) {
+                    return waited;
+                }
+                term = Term.nextSemester(term);
+            }
+            return -1;
+        }
+
+        GraduationPlan run(int firstYear, int firstSemester) {
+            long[] start = new long[words];
+            List<long[]> best = greedyPlan(start);
+            boolean optimal = true;
+
+            // Look for a plan shorter than the greedy one, one term count at a time
+            for (int terms = lowerBound(start, heights(start)); terms < best.size(); terms++) {
+                path.clear();
+                if (feasible(start, terms)) {
+                    best = new ArrayList<>(path);
+                    break;
+                }
+                if (timedOut) {
+                    optimal = false;
+                    break;
+                }
+            }
+            return toPlan(best, firstYear, firstSemester, optimal && !stricterThanRules);
+        }
+
+        // Critical-path list scheduling: longest remaining chain first, then larger subjects
+        List<long[]> greedyPlan(long[] start) {
+            List<long[]> plan = new ArrayList<>();
+            long[] done = start.clone();
+            while (!isComplete(done)) {
+                int[] height = heights(done);
+                Integer[] eligible = eligible(done, height);
+                long[] term = new long[words];
+                int load = 0;
+                for (int i : eligible) {
+                    if (load + units[i] <= maxUnits) {
+                        set(term, i);
+                        load += units[i];
+                    }
+                }
+                plan.add(term);
+                or(done, term);
+            }
+            return plan;
+        }
+
+        // Can everything left be finished within the given number of terms?
+        boolean feasible(long[] done, int terms) {
+            if (isComplete(done)) {
+                return true;
+            }
+            if (terms == 0 || timedOut) {
+                return false;
+            }
+            if ((++nodes & 255) == 0 && System.nanoTime() - deadline > 0) {
+                timedOut = true;
+                return false;
+            }
+
+            State state = new State(done);
+            Integer known = infeasible.get(state);
+            if (known != null && known >= terms) {
+                return false;
+            }
+
+            int[] height = heights(done);
+            if (lowerBound(done, height) > terms || (terms <= MAX_WINDOW_TERMS && !windowsFit(done, height, terms))) {
+                remember(state, terms);
+                return false;
+            }
+
+            // Subjects heading a chain as long as the terms left must all be taken now
+            Integer[] eligible = eligible(done, height);
+            long[] term = new long[words];
+            int load = 0;
+            List<Integer> optional = new ArrayList<>();
+            for (int i : eligible) {
+                if (height[i] == terms) {
+                    set(term, i);
+                    load += units[i];
+                } else {
+                    optional.add(i);
+                }
+            }
+            if (load > maxUnits) {
+                remember(state, terms);
+                return false;
+            }
+
+            if (chooseLoads(done, terms, optional, 0, term, load, height, Integer.MAX_VALUE)) {
+                return true;
+            }
+            if (!timedOut) {
+                remember(state, terms);
+            }
+            return false;
+        }
+
+        // Try every term load that cannot take another optional subject, in priority order.
+        // Interchangeable subjects (no dependents left, same units) are taken in list order only.
+        // Recursion only goes one level per subject added, so it stays shallow on large catalogs.
+        boolean chooseLoads(long[] done, int terms, List<Integer> optional, int from, long[] term, int load,
+                            int[] height, int smallestSkipped) {
+            int skipped = smallestSkipped;
+            for (int next = from; next < optional.size() && !timedOut; next++) {
+                int i = optional.get(next);
+                if (load + units[i] <= maxUnits && !skippedTwin(optional, next, term, height)) {
+                    set(term, i);
+                    boolean found = chooseLoads(done, terms, optional, next + 1, term, load + units[i], height,
+                            skipped);
+                    clear(term, i);
+                    if (found) {
+                        return true;
+                    }
+                }
+                skipped = Math.min(skipped, units[i]);
+            }
+
+            // Add nothing more: only a load no skipped subject still fits in is worth trying
+            if (timedOut || maxUnits - load >= skipped) {
+                return false;
+            }
+            long[] after = done.clone();
+            or(after, term);
+            int depth = path.size();
+            path.add(term.clone());
+            if (feasible(after, terms - 1)) {
+                return true;
+            }
+            path.subList(depth, path.size()).clear();
+            return false;
+        }
+
+        // True when the previous subject is an interchangeable twin that this load skipped
+        boolean skippedTwin(List<Integer> optional, int next, long[] term, int[] height) {
+            if (next == 0) {
+                return false;
+            }
+            int i = optional.get(next);
+            int previous = optional.get(next - 1);
+            return height[i] == 1 && height[previous] == 1 && units[i] == units[previous] && !isSet(term, previous);
+        }
+
+        // Longest chain of remaining subjects starting at each subject (0 for passed ones)
+        int[] heights(long[] done) {
+            int[] height = new int[subjects.length];
+            for (int i = subjects.length - 1; i >= 0; i--) {
+                if (isSet(done, i)) {
+                    continue;
+                }
+                int longest = 0;
+                for (int dependent : dependents[i]) {
+                    longest = Math.max(longest, height[dependent]);
+                }
+                height[i] = longest + 1;
+            }
+            return height;
+        }
+
+        // Terms needed at least: subjects at chain height h or more have to fit in the terms before
+        // the last h - 1, so each height gives a bound from its units as well as from the chain itself
+        int lowerBound(long[] done, int[] height) {
+            int maxHeight = 0;
+            for (int h : height) {
+                maxHeight = Math.max(maxHeight, h);
+            }
+            int[] unitsAtHeight = new int[maxHeight + 2];
+            for (int i = 0; i < subjects.length; i++) {
+                unitsAtHeight[height[i]] += units[i];
+            }
+
+            int bound = maxHeight;
+            int unitsAtLeast = 0;
+            for (int h = maxHeight; h >= 1; h--) {
+                unitsAtLeast += unitsAtHeight[h];
+                bound = Math.max(bound, h - 1 + (unitsAtLeast + maxUnits - 1) / maxUnits);
+            }
+            return bound;
+        }
+
+        // Each subject must be taken between its earliest term (after its chain of remaining
+        // prerequisites) and its latest one (leaving room for its chain of dependents). The subjects
+        // whose window lies inside a run of terms must fit in those terms' combined units.
+        boolean windowsFit(long[] done, int[] height, int terms) {
+            int[] depth = new int[subjects.length];
+            int[] latestTerm = new int[subjects.length];
+            int[][] unitsInWindow = new int[terms + 2][terms + 2];
+            for (int i = 0; i < subjects.length; i++) {
+                if (isSet(done, i)) {
+                    continue;
+                }
+                int earliest = 0;
+                for (int prereq : prerequisites[i]) {
+                    earliest = Math.max(earliest, depth[prereq]);
+                }
+                depth[i] = earliest + 1;
+                int latest = terms - height[i] + 1;
+                if (depth[i] > latest) {
+                    return false;
+                }
+                latestTerm[i] = latest;
+                unitsInWindow[depth[i]][latest] += units[i];
+            }
+
+            for (int first = 1; first <= terms; first++) {
+                int load = 0;
+                for (int last = first; last <= terms; last++) {
+                    for (int a = first; a <= last; a++) {
+                        load += unitsInWindow[a][last];
+                    }
+                    if (load > capacity(done, depth, latestTerm, first, last)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        // Units a run of terms can hold. A term can only go past the largest multiple of m below the
+        // cap with a subject whose units are not a multiple of m, and such subjects are usually few
+        // (with mostly 3-unit subjects and a cap of 26, a term of 3-unit subjects tops out at 24).
+        int capacity(long[] done, int[] depth, int[] latestTerm, int first, int last) {
+            int terms = last - first + 1;
+            int capacity = maxUnits * terms;
+            for (int m = 2; m <= MAX_UNIT_MODULUS && m <= maxUnits; m++) {
+                int aligned = maxUnits / m * m;
+                if (aligned == maxUnits) {
+                    continue;
+                }
+                int unaligned = 0;
+                for (int i = 0; i < subjects.length && unaligned < terms; i++) {
+                    if (!isSet(done, i) && units[i] % m != 0 && depth[i] <= last && latestTerm[i] >= first) {
+                        unaligned++;
+                    }
+                }
+                capacity = Math.min(capacity, aligned * terms + unaligned * (maxUnits - aligned));
+            }
+            return capacity;
+        }
+
+        // Subjects whose prerequisites are all done, longest chain first, then larger subjects
+        Integer[] eligible(long[] done, int[] height) {
+            List<Integer> eligible = new ArrayList<>();
+            for (int i = 0; i < subjects.length; i++) {
+                if (isSet(done, i)) {
+                    continue;
+                }
+                boolean ready = true;
+                for (int prereq : prerequisites[i]) {
+                    if (!isSet(done, prereq)) {
+                        ready = false;
+                        break;
+                    }
+                }
+                if (ready) {
+                    eligible.add(i);
+                }
+            }
+            Integer[] ordered = eligible.toArray(new Integer[0]);
+            Arrays.sort(ordered, Comparator.<Integer>comparingInt(i -> -height[i])
+                    .thenComparingInt(i -> -units[i])
+                    .thenComparingInt(i -> subjects[i] == null ? -1 : subjects[i].getOrdinal()));
+            return ordered;
+        }
+
+        boolean isComplete(long[] done) {
+            for (int w = 0; w < words; w++) {
+                long full = w == words - 1 && (subjects.length & 63) != 0 ? (1L << subjects.length) - 1 : -1L;
+                if (done[w] != full) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void remember(State state, int terms) {
+            if (infeasible.size() >= MAX_MEMO_STATES) {
+                infeasible.clear();
+            }
+            infeasible.merge(state, terms, Math::max);
+        }
+
+        GraduationPlan toPlan(List<long[]> terms, int firstYear, int firstSemester, boolean optimal) {
+            List<GraduationPlan.Term> planned = new ArrayList<>();
+            int next = Term.of(firstYear, firstSemester);
+            for (long[] term : terms) {
+                List<Subject> taken = new ArrayList<>();
+                for (int i = 0; i < subjects.length; i++) {
+                    if (isSet(term, i) && subjects[i] != null) {
+                        taken.add(subjects[i]);
+                    }
+                }
+                taken.sort(Comparator.comparingInt(Subject::getOrdinal));
+                planned.add(new GraduationPlan.Term(Term.year(next), Term.semester(next), taken));
+                next = Term.nextSemester(next); // Plans use regular semesters only
+            }
+            return new GraduationPlan(planned, unschedulable, optimal);
+        }
+    }
+
+    private static int highestYearStanding(PrerequisiteExpression rule) {
+        int year = rule.getKind() == PrerequisiteExpression.Kind.YEAR_STANDING ? rule.getYear() : 0;
+        for (PrerequisiteExpression child : rule.getChildren()) {
+            year = Math.max(year, highestYearStanding(child));
+        }
+        return year;
+    }
+
+    // Passed set used as a memo key
+    private static final class State {
+        final long[] bits;
+        final int hash;
+
+        State(long[] bits) {
+            this.bits = bits.clone();
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof State && hash == ((State) o).hash && Arrays.equals(bits, ((State) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static void or(long[] target, long[] source) {
+        for (int w = 0; w < target.length; w++) {
+            target[w] |= source[w];
+        }
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.*;
+
+// Recommendations for one history and term, remembered together with the order in which the greedy
+// phases examined candidates. StudentEval.updateRecommendation uses that trace to redo only the part
+// of the pipeline a grade change can reach instead of starting over.
+public final class IncrementalRecommendation {
+    static final int RETAKES = 0;
+    static final int NEXT_SEMESTER = 1;
+    static final int ADVANCED = 2;
+    static final int ANY = 3;
+
+    final CurriculumIndex curriculum;
+    private final AcademicRecord record;
+    final Trace trace; // Null when the recommendations did not come from the greedy phases
+    private final int currentYear;
+    private final int currentSemester;
+    private final List<Subject> subjects;
+
+    IncrementalRecommendation(CurriculumIndex curriculum, AcademicRecord record, int currentYear, int currentSemester,
+                              List<Subject> subjects, Trace trace) {
+        this.curriculum = curriculum;
+        this.record = record;
+        this.currentYear = currentYear;
+        this.currentSemester = currentSemester;
+        this.subjects = Collections.unmodifiableList(subjects);
+        this.trace = trace;
+    }
+
+    private IncrementalRecommendation(IncrementalRecommendation source, AcademicRecord record) {
+        this.curriculum = source.curriculum;
+        this.record = record;
+        this.currentYear = source.currentYear;
+        this.currentSemester = source.currentSemester;
+        this.subjects = source.subjects;
+        this.trace = source.trace;
+    }
+
+    // Same recommendations for a changed history the greedy phases never looked at
+    IncrementalRecommendation withRecord(AcademicRecord record) {
+        return new IncrementalRecommendation(this, record);
+    }
+
+    public List<Subject> getSubjects() {
+        return subjects;
+    }
+
+    public int getTotalUnits() {
+        int total = 0;
+        for (Subject subject : subjects) {
+            total += subject.getUnits();
+        }
+        return total;
+    }
+
+    // The history these recommendations were computed from, as far as the curriculum knows it
+    public AcademicRecord getRecord() {
+        return record;
+    }
+
+    public int getCurrentYear() {
+        return currentYear;
+    }
+
+    public int getCurrentSemester() {
+        return currentSemester;
+    }
+
+    // Every candidate the greedy phases examined, in order, with how many subjects had been
+    // recommended before it, plus the step at which each phase started (-1 if it never ran)
+    static final class Trace {
+        int[] ordinals;
+        int[] added;
+        int size;
+        final int[] phaseStarts = {-1, -1, -1, -1};
+
+        Trace() {
+            this.ordinals = new int[32];
+            this.added = new int[32];
+        }
+
+        private Trace(Trace source, int steps, int phase) {
+            this.ordinals = Arrays.copyOf(source.ordinals, Math.max(steps, 32));
+            this.added = Arrays.copyOf(source.added, Math.max(steps, 32));
+            this.size = steps;
+            System.arraycopy(source.phaseStarts, 0, phaseStarts, 0, phase);
+        }
+
+        void step(int ordinal, int recommended) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                added = Arrays.copyOf(added, size * 2);
+            }
+            ordinals[size] = ordinal;
+            added[size] = recommended;
+            size++;
+        }
+
+        // Phase that examined a step
+        int phaseOf(int step) {
+            for (int phase = ANY; phase > RETAKES; phase--) {
+                if (phaseStarts[phase] >= 0 && phaseStarts[phase] <= step) {
+                    return phase;
+                }
+            }
+            return RETAKES;
+        }
+
+        // Subjects recommended before a step ran
+        int addedBefore(int step, int total) {
+            return step < size ? added[step] : total;
+        }
+
+        // The first steps, keeping only the starts of the phases before the given one
+        Trace prefix(int steps, int phase) {
+            return new Trace(this, steps, phase);
+        }
+    }
+}
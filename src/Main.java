@@ -1,9 +1,16 @@
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // "batch <input> <output> [workers]" runs the streaming registrar batch mode
+        if (args.length > 0 && args[0].equals("batch")) {
+            BatchRecommender.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         int totalUnits = 0;
         StudentEval se = new StudentEval("bsit");
         Map<String, Boolean> subMap = new HashMap<>();
@@ -0,0 +1,127 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram and counters for one phase. Latencies go into power-of-two nanosecond buckets,
+// so recording is a leading-zero count and two adds with no locking; percentiles are reported as the
+// upper edge of their bucket (within a factor of two).
+public final class PhaseMetrics implements PhaseMetricsMBean {
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder candidatesExamined = new LongAdder();
+    private final LongAdder subjectsAdded = new LongAdder();
+
+    PhaseMetrics(String name) {
+        this.name = name;
+    }
+
+    // Record a call that started at startNanos; returns the current time so phases can be chained
+    long record(long startNanos, int examined, int added) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        candidatesExamined.add(examined);
+        subjectsAdded.add(added);
+        return now;
+    }
+
+    void record(long nanos) {
+        long elapsed = Math.max(nanos, 0);
+        buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(elapsed | 1));
+        count.increment();
+        totalNanos.add(elapsed);
+        maxNanos.accumulate(elapsed);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long calls = count.sum();
+        return calls == 0 ? 0.0 : totalNanos.sum() / 1e3 / calls;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentileMicros(0.50);
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentileMicros(0.99);
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return maxNanos.get() / 1e3;
+    }
+
+    @Override
+    public long getCandidatesExamined() {
+        return candidatesExamined.sum();
+    }
+
+    @Override
+    public long getSubjectsAdded() {
+        return subjectsAdded.sum();
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            histogram[b] = buckets.get(b);
+        }
+        return histogram;
+    }
+
+    @Override
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets.set(b, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        candidatesExamined.reset();
+        subjectsAdded.reset();
+    }
+
+    private double percentileMicros(double quantile) {
+        long[] histogram = getLatencyHistogram();
+        long total = 0;
+        for (long calls : histogram) {
+            total += calls;
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += histogram[b];
+            if (seen >= rank) {
+                return Math.min((double) (1L << Math.min(b + 1, 62)), maxNanos.get()) / 1e3;
+            }
+        }
+        return maxNanos.get() / 1e3;
+    }
+}
@@ -0,0 +1,25 @@
+// JMX view of one recommendation phase (or of curriculum loading)
+public interface PhaseMetricsMBean {
+    String getName();
+
+    long getCount();
+
+    long getTotalNanos();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    long getCandidatesExamined();
+
+    long getSubjectsAdded();
+
+    // Calls per power-of-two latency bucket: index b counts calls of [2^b, 2^(b+1)) nanoseconds
+    long[] getLatencyHistogram();
+
+    void reset();
+}
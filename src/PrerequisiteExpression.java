@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Eligibility rule of a subject as written in curriculum.xml: prerequisites that must be passed,
+// corequisites that must be passed or taken in the same term, a minimum year standing, and allOf /
+// anyOf groups of those. Subjects whose rule is just a list of prerequisites keep it as that list;
+// CurriculumIndex compiles either form into a PrerequisiteMask once, at load.
+public final class PrerequisiteExpression {
+    public enum Kind { ALL_OF, ANY_OF, PREREQUISITE, COREQUISITE, YEAR_STANDING }
+
+    private final Kind kind;
+    private final String code; // Prerequisite and corequisite leaves
+    private final int year; // Year standing leaves
+    private final List<PrerequisiteExpression> children; // Groups
+
+    private PrerequisiteExpression(Kind kind, String code, int year, List<PrerequisiteExpression> children) {
+        this.kind = kind;
+        this.code = code;
+        this.year = year;
+        this.children = children;
+    }
+
+    public static PrerequisiteExpression prerequisite(String code) {
+        return new PrerequisiteExpression(Kind.PREREQUISITE, requireCode(code), 0, Collections.emptyList());
+    }
+
+    public static PrerequisiteExpression corequisite(String code) {
+        return new PrerequisiteExpression(Kind.COREQUISITE, requireCode(code), 0, Collections.emptyList());
+    }
+
+    // Met once the student is in at least this year level in the term being planned
+    public static PrerequisiteExpression yearStanding(int year) {
+        if (year < 1) {
+            throw new IllegalArgumentException("Year standing must be at least 1");
+        }
+        return new PrerequisiteExpression(Kind.YEAR_STANDING, null, year, Collections.emptyList());
+    }
+
+    // Met when every requirement is met; an empty group is always met
+    public static PrerequisiteExpression allOf(List<PrerequisiteExpression> requirements) {
+        return new PrerequisiteExpression(Kind.ALL_OF, null, 0, copy(requirements));
+    }
+
+    // Met when at least one requirement is met
+    public static PrerequisiteExpression anyOf(List<PrerequisiteExpression> requirements) {
+        List<PrerequisiteExpression> members = copy(requirements);
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("anyOf needs at least one requirement");
+        }
+        return new PrerequisiteExpression(Kind.ANY_OF, null, 0, members);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public List<PrerequisiteExpression> getChildren() {
+        return children;
+    }
+
+    // Codes of every leaf of the given kind, in document order, including those in anyOf branches
+    public List<String> getCodes(Kind leafKind) {
+        List<String> codes = new ArrayList<>();
+        collectCodes(leafKind, codes);
+        return codes;
+    }
+
+    private void collectCodes(Kind leafKind, List<String> codes) {
+        if (kind == leafKind && code != null) {
+            codes.add(code);
+        }
+        for (PrerequisiteExpression child : children) {
+            child.collectCodes(leafKind, codes);
+        }
+    }
+
+    // Prerequisite codes that must be passed however the rule is met: every one under an allOf,
+    // and under an anyOf only those every alternative requires
+    public List<String> getRequiredCodes() {
+        switch (kind) {
+            case PREREQUISITE:
+                return Collections.singletonList(code);
+            case COREQUISITE:
+            case YEAR_STANDING:
+                return Collections.emptyList();
+            case ALL_OF: {
+                Set<String> required = new LinkedHashSet<>();
+                for (PrerequisiteExpression child : children) {
+                    required.addAll(child.getRequiredCodes());
+                }
+                return new ArrayList<>(required);
+            }
+            default: {
+                Set<String> required = new LinkedHashSet<>(children.get(0).getRequiredCodes());
+                for (PrerequisiteExpression child : children.subList(1, children.size())) {
+                    required.retainAll(child.getRequiredCodes());
+                }
+                return new ArrayList<>(required);
+            }
+        }
+    }
+
+    // True for an allOf (at any nesting) of nothing but prerequisites, the classic flat list
+    public boolean isPrerequisiteList() {
+        if (kind == Kind.PREREQUISITE) {
+            return true;
+        }
+        if (kind != Kind.ALL_OF) {
+            return false;
+        }
+        for (PrerequisiteExpression child : children) {
+            if (!child.isPrerequisiteList()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case PREREQUISITE:
+                return code;
+            case COREQUISITE:
+                return "coreq " + code;
+            case YEAR_STANDING:
+                return "year " + year + " standing";
+            default:
+                List<String> parts = new ArrayList<>();
+                for (PrerequisiteExpression child : children) {
+                    boolean group = child.children.size() > 1;
+                    parts.add(group ? "(" + child + ")" : child.toString());
+                }
+                return String.join(kind == Kind.ALL_OF ? " and " : " or ", parts);
+        }
+    }
+
+    private static String requireCode(String code) {
+        if (code == null) {
+            throw new IllegalArgumentException("Requirement code cannot be null");
+        }
+        return code;
+    }
+
+    private static List<PrerequisiteExpression> copy(List<PrerequisiteExpression> requirements) {
+        if (requirements == null) {
+            throw new IllegalArgumentException("Requirements cannot be null");
+        }
+        return Collections.unmodifiableList(new ArrayList<>(requirements));
+    }
+}
@@ -0,0 +1,257 @@
+import java.util.*;
+
+// Prerequisite DAG of a curriculum, keyed by CurriculumIndex ordinals. Edges in both directions and
+// a topological order are computed once, along with every node's ancestors and descendants as a
+// sparse bitset (the non-zero words and their indexes, like PrerequisiteMask), so reachability
+// questions never walk the graph.
+//
+// Every code a subject's rule names as a prerequisite is an edge, anyOf alternatives included, so
+// the order and dependents are safe for any way of meeting the rule. Ancestors and descendants
+// only follow required edges: for an anyOf, just the codes every alternative needs.
+public final class PrerequisiteGraph {
+    private final CurriculumIndex curriculum;
+    private final int[][] prerequisites;
+    private final int[][] dependents;
+    private final int[][] requiredPrerequisites; // Edges that hold however the rule is met
+    private final int[][] requiredDependents;
+    private final int[][] corequisiteDependents; // Subjects naming it as corequisite
+    private final int[][] eligibilityDependents; // Subjects whose eligibility can change with it
+    private final int[] topologicalOrder;
+    private final int[][] ancestorWords; // Sorted indexes of each node's non-zero ancestor words
+    private final long[][] ancestorBits;
+    private final int[][] descendantWords;
+    private final long[][] descendantBits;
+
+    public PrerequisiteGraph(CurriculumIndex curriculum) {
+        this.curriculum = curriculum;
+        int nodes = curriculum.getOrdinalCount();
+
+        // Direct edges, deduplicated; prerequisite-only codes have no prerequisites of their own
+        this.prerequisites = new int[nodes][];
+        List<List<Integer>> reverse = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            reverse.add(new ArrayList<>());
+        }
+        for (int node = 0; node < nodes; node++) {
+            Subject subject = curriculum.subjectAt(node);
+            int[] direct = subject == null ? new int[0] : subject.getPrerequisites().stream()
+                    .mapToInt(curriculum::ordinalOf)
+                    .distinct()
+                    .toArray();
+            prerequisites[node] = direct;
+            for (int prereq : direct) {
+                reverse.get(prereq).add(node);
+            }
+        }
+        this.dependents = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            dependents[node] = reverse.get(node).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        this.requiredPrerequisites = new int[nodes][];
+        List<List<Integer>> requiredReverse = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            requiredReverse.add(new ArrayList<>());
+        }
+        for (int node = 0; node < nodes; node++) {
+            Subject subject = curriculum.subjectAt(node);
+            int[] required = subject == null || subject.getRequirement() == null ? prerequisites[node]
+                    : subject.getRequirement().getRequiredCodes().stream()
+                            .mapToInt(curriculum::ordinalOf)
+                            .distinct()
+                            .toArray();
+            requiredPrerequisites[node] = required;
+            for (int prereq : required) {
+                requiredReverse.get(prereq).add(node);
+            }
+        }
+        this.requiredDependents = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            requiredDependents[node] = requiredReverse.get(node).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Corequisites may name each other, so they are kept out of the DAG itself
+        List<Set<Integer>> corequisiteReaders = new ArrayList<>();
+        for (int node = 0; node < nodes; node++) {
+            corequisiteReaders.add(new LinkedHashSet<>());
+        }
+        for (int node = 0; node < nodes; node++) {
+            Subject subject = curriculum.subjectAt(node);
+            if (subject != null) {
+                for (String coreq : subject.getCorequisites()) {
+                    corequisiteReaders.get(curriculum.ordinalOf(coreq)).add(node);
+                }
+            }
+        }
+        this.corequisiteDependents = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            corequisiteDependents[node] = corequisiteReaders.get(node).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // A subject reads its prerequisites and corequisites, and a subject that may bring a
+        // corequisite along also reads whatever that corequisite reads
+        this.eligibilityDependents = new int[nodes][];
+        for (int node = 0; node < nodes; node++) {
+            Set<Integer> readers = new LinkedHashSet<>(reverse.get(node));
+            readers.addAll(corequisiteReaders.get(node));
+            for (int reader : readers.toArray(new Integer[0])) {
+                readers.addAll(corequisiteReaders.get(reader));
+            }
+            readers.remove(node);
+            eligibilityDependents[node] = readers.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        this.topologicalOrder = sort(nodes);
+
+        // Prerequisites come first in the order, so each node's ancestors are its required
+        // prerequisites' ancestors plus those prerequisites; descendants mirror that backwards
+        this.ancestorWords = new int[nodes][];
+        this.ancestorBits = new long[nodes][];
+        close(requiredPrerequisites, false, ancestorWords, ancestorBits);
+        this.descendantWords = new int[nodes][];
+        this.descendantBits = new long[nodes][];
+        close(requiredDependents, true, descendantWords, descendantBits);
+    }
+
+    // Fills words/bits for every node with the union of its edges' targets and their own sets,
+    // visiting nodes so every target is done before the nodes pointing at it
+    private void close(int[][] edges, boolean backwards, int[][] words, long[][] bits) {
+        long[] scratch = new long[curriculum.getWordCount()];
+        int[] touched = new int[scratch.length];
+        for (int i = 0; i < topologicalOrder.length; i++) {
+            int node = topologicalOrder[backwards ? topologicalOrder.length - 1 - i : i];
+            int count = 0;
+            for (int next : edges[node]) {
+                count = or(scratch, touched, count, next >>> 6, 1L << next);
+                int[] nextWords = words[next];
+                long[] nextBits = bits[next];
+                for (int w = 0; w < nextWords.length; w++) {
+                    count = or(scratch, touched, count, nextWords[w], nextBits[w]);
+                }
+            }
+            Arrays.sort(touched, 0, count);
+            words[node] = Arrays.copyOf(touched, count);
+            bits[node] = new long[count];
+            for (int w = 0; w < count; w++) {
+                bits[node][w] = scratch[touched[w]];
+                scratch[touched[w]] = 0;
+            }
+        }
+    }
+
+    private static int or(long[] scratch, int[] touched, int count, int word, long bits) {
+        if (scratch[word] == 0) {
+            touched[count++] = word;
+        }
+        scratch[word] |= bits;
+        return count;
+    }
+
+    // Kahn's algorithm, seeded in ordinal (curriculum) order; fails on cycles
+    private int[] sort(int nodes) {
+        int[] remaining = new int[nodes];
+        ArrayDeque<Integer> ready = new ArrayDeque<>();
+        for (int node = 0; node < nodes; node++) {
+            remaining[node] = prerequisites[node].length;
+            if (remaining[node] == 0) {
+                ready.add(node);
+            }
+        }
+
+        int[] order = new int[nodes];
+        int count = 0;
+        while (!ready.isEmpty()) {
+            int node = ready.poll();
+            order[count++] = node;
+            for (int dependent : dependents[node]) {
+                if (--remaining[dependent] == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (count < nodes) {
+            List<String> cyclic = new ArrayList<>();
+            for (int node = 0; node < nodes; node++) {
+                if (remaining[node] > 0) {
+                    cyclic.add(curriculum.codeAt(node));
+                }
+            }
+            throw new IllegalStateException("Prerequisite cycle among subjects: " + cyclic);
+        }
+        return order;
+    }
+
+    // Subjects ordered so every subject comes after all of its prerequisites
+    public List<Subject> getTopologicalOrder() {
+        List<Subject> ordered = new ArrayList<>();
+        for (int node : topologicalOrder) {
+            Subject subject = curriculum.subjectAt(node);
+            if (subject != null) {
+                ordered.add(subject);
+            }
+        }
+        return ordered;
+    }
+
+    // Check if prereq must be passed, directly or indirectly, before taking code
+    public boolean isPrerequisiteOf(String prereq, String code) {
+        int node = curriculum.ordinalOf(code);
+        int ancestor = curriculum.ordinalOf(prereq);
+        return node >= 0 && ancestor >= 0 && contains(ancestorWords[node], ancestorBits[node], ancestor);
+    }
+
+    // Every subject code that must be passed, directly or indirectly, before taking code
+    public List<String> getAncestors(String code) {
+        int node = curriculum.ordinalOf(code);
+        return node >= 0 ? codes(ancestorWords[node], ancestorBits[node]) : Collections.emptyList();
+    }
+
+    // Every subject code that directly or indirectly requires code
+    public List<String> getDescendants(String code) {
+        int node = curriculum.ordinalOf(code);
+        return node >= 0 ? codes(descendantWords[node], descendantBits[node]) : Collections.emptyList();
+    }
+
+    // Subject codes whose rule names code as a prerequisite, anyOf alternatives included
+    public List<String> getDependents(String code) {
+        int node = curriculum.ordinalOf(code);
+        if (node < 0) {
+            return Collections.emptyList();
+        }
+        List<String> codes = new ArrayList<>();
+        for (int dependent : dependents[node]) {
+            codes.add(curriculum.codeAt(dependent));
+        }
+        return codes;
+    }
+
+    // Subjects whose eligibility can change with an ordinal's result: those naming it as a
+    // prerequisite or corequisite, and those that may take one of them along as a corequisite;
+    // callers must not modify the array
+    int[] dependentsOf(int ordinal) {
+        return eligibilityDependents[ordinal];
+    }
+
+    // Subjects naming an ordinal as a corequisite; callers must not modify the array
+    int[] corequisiteDependentsOf(int ordinal) {
+        return corequisiteDependents[ordinal];
+    }
+
+    private static boolean contains(int[] words, long[] bits, int ordinal) {
+        int at = Arrays.binarySearch(words, ordinal >>> 6);
+        return at >= 0 && (bits[at] & (1L << ordinal)) != 0;
+    }
+
+    private List<String> codes(int[] words, long[] bits) {
+        List<String> codes = new ArrayList<>();
+        for (int w = 0; w < words.length; w++) {
+            long remaining = bits[w];
+            while (remaining != 0) {
+                codes.add(curriculum.codeAt((words[w] << 6) + Long.numberOfTrailingZeros(remaining)));
+                remaining &= remaining - 1;
+            }
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+// Prerequisites of a subject compiled against the curriculum's ordinals. Only the non-zero words of
+// the mask are stored, so a subject with two prerequisites costs one or two word tests no matter
+// how large the curriculum is.
+//
+// Richer rules (anyOf groups, corequisites, year standing) compile to a small program instead: a
+// flat list of tests, each one word of the passed (or passed-or-concurrent) bitset against a mask,
+// or the year level against a minimum, with the test to jump to when it holds and when it fails.
+// Jumps only go forward and groups short-circuit, so evaluation is a handful of word tests.
+public final class PrerequisiteMask {
+    static final PrerequisiteMask NONE = new PrerequisiteMask(new int[0], new long[0], null, null);
+
+    static final int ACCEPT = -1;
+    static final int REJECT = -2;
+    static final int ALL_PASSED = 0; // Every bit passed
+    static final int ANY_PASSED = 1; // Some bit passed
+    static final int ALL_CONCURRENT = 2; // Every bit passed or taken in the same term
+    static final int ANY_CONCURRENT = 3; // Some bit passed or taken in the same term
+    static final int YEAR_STANDING = 4; // Year level at least the operand
+    static final int INSTRUCTION_SIZE = 4; // op, word index or year, next when true, next when false
+
+    private final int[] wordIndexes;
+    private final long[] wordBits;
+    private final int[] program; // Null for a plain list of prerequisites
+    private final long[] programBits; // Mask of each instruction
+    private final boolean corequisites;
+
+    private PrerequisiteMask(int[] wordIndexes, long[] wordBits, int[] program, long[] programBits) {
+        this.wordIndexes = wordIndexes;
+        this.wordBits = wordBits;
+        this.program = program;
+        this.programBits = programBits;
+        this.corequisites = readsConcurrent(program);
+    }
+
+    // Build a mask from prerequisite ordinals
+    static PrerequisiteMask of(int[] ordinals) {
+        if (ordinals.length == 0) {
+            return NONE;
+        }
+
+        long[] dense = new long[maxOrdinal(ordinals) / 64 + 1];
+        for (int ordinal : ordinals) {
+            dense[ordinal >>> 6] |= 1L << ordinal;
+        }
+
+        int used = 0;
+        for (long word : dense) {
+            if (word != 0) used++;
+        }
+
+        int[] indexes = new int[used];
+        long[] bits = new long[used];
+        for (int i = 0, j = 0; i < dense.length; i++) {
+            if (dense[i] != 0) {
+                indexes[j] = i;
+                bits[j++] = dense[i];
+            }
+        }
+        return new PrerequisiteMask(indexes, bits, null, null);
+    }
+
+    // Compile a prerequisite expression. A plain list of prerequisites gets the same mask as of().
+    static PrerequisiteMask compile(PrerequisiteExpression requirement, ToIntFunction<String> ordinals) {
+        if (requirement.isPrerequisiteList()) {
+            return of(requirement.getCodes(PrerequisiteExpression.Kind.PREREQUISITE).stream()
+                    .mapToInt(ordinals)
+                    .toArray());
+        }
+
+        if (requirement.getKind() != PrerequisiteExpression.Kind.ALL_OF
+                && requirement.getKind() != PrerequisiteExpression.Kind.ANY_OF) {
+            requirement = PrerequisiteExpression.allOf(Collections.singletonList(requirement));
+        }
+
+        Compiler compiler = new Compiler(ordinals);
+        int entry = compiler.emit(requirement, ACCEPT, REJECT);
+        if (entry == ACCEPT) {
+            return NONE;
+        }
+        if (entry == REJECT) {
+            // Can never be met; a year standing no student reaches keeps the program shape
+            entry = compiler.instruction(YEAR_STANDING, Integer.MAX_VALUE, 0L, ACCEPT, REJECT);
+        }
+        return compiler.finish(entry);
+    }
+
+    // Rebuild a mask from its stored words, as written by CurriculumSnapshot
+    static PrerequisiteMask ofWords(int[] wordIndexes, long[] wordBits) {
+        return wordIndexes.length == 0 ? NONE : new PrerequisiteMask(wordIndexes, wordBits, null, null);
+    }
+
+    // Rebuild a compiled program, as written by CurriculumSnapshot
+    static PrerequisiteMask ofProgram(int[] program, long[] programBits) {
+        return new PrerequisiteMask(new int[0], new long[0], program, programBits);
+    }
+
+    int[] wordIndexes() {
+        return wordIndexes;
+    }
+
+    long[] wordBits() {
+        return wordBits;
+    }
+
+    // Compiled program, or null for a plain list of prerequisites
+    int[] program() {
+        return program;
+    }
+
+    long[] programBits() {
+        return programBits;
+    }
+
+    public boolean isEmpty() {
+        return wordIndexes.length == 0 && program == null;
+    }
+
+    // True when some test reads the subjects taken in the same term
+    public boolean hasCorequisites() {
+        return corequisites;
+    }
+
+    private static boolean readsConcurrent(int[] program) {
+        if (program != null) {
+            for (int at = 0; at < program.length; at += INSTRUCTION_SIZE) {
+                if (program[at] == ALL_CONCURRENT || program[at] == ANY_CONCURRENT) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Check if every prerequisite bit is set in the given bitset. Corequisites then count only when
+    // passed, and year standing is not checked.
+    public boolean isSatisfiedBy(long[] passed) {
+        return program == null ? allPassed(passed) : run(passed, passed, Integer.MAX_VALUE);
+    }
+
+    // Check the rule for a student in the given year level who is also taking the subjects set in
+    // concurrent this term
+    public boolean isSatisfiedBy(long[] passed, long[] concurrent, int yearLevel) {
+        return program == null ? allPassed(passed) : run(passed, concurrent, yearLevel);
+    }
+
+    private boolean allPassed(long[] passed) {
+        for (int i = 0; i < wordIndexes.length; i++) {
+            long bits = wordBits[i];
+            if ((passed[wordIndexes[i]] & bits) != bits) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean run(long[] passed, long[] concurrent, int yearLevel) {
+        int next = 0;
+        do {
+            int at = next * INSTRUCTION_SIZE;
+            int operand = program[at + 1];
+            long bits = programBits[next];
+            boolean holds;
+            switch (program[at]) {
+                case ALL_PASSED:
+                    holds = (passed[operand] & bits) == bits;
+                    break;
+                case ANY_PASSED:
+                    holds = (passed[operand] & bits) != 0;
+                    break;
+                case ALL_CONCURRENT:
+                    holds = ((passed[operand] | concurrent[operand]) & bits) == bits;
+                    break;
+                case ANY_CONCURRENT:
+                    holds = ((passed[operand] | concurrent[operand]) & bits) != 0;
+                    break;
+                default:
+                    holds = yearLevel >= operand;
+                    break;
+            }
+            next = program[at + (holds ? 2 : 3)];
+        } while (next >= 0);
+        return next == ACCEPT;
+    }
+
+    private static int maxOrdinal(int[] ordinals) {
+        int max = 0;
+        for (int ordinal : ordinals) {
+            max = Math.max(max, ordinal);
+        }
+        return max;
+    }
+
+    // Short-circuit code generation. Each group is emitted back to front with its continuations
+    // already known: inside allOf a test that holds moves on to the next test and a failing one
+    // leaves the group through its false exit; anyOf is the mirror image. Leaves of one group that
+    // share a word are merged into a single mask test, cheap mask tests come before nested groups,
+    // and the instruction emitted last (the first to run) becomes instruction 0.
+    private static final class Compiler {
+        private final ToIntFunction<String> ordinals;
+        private final List<int[]> instructions = new ArrayList<>();
+        private final List<Long> bits = new ArrayList<>();
+
+        Compiler(ToIntFunction<String> ordinals) {
+            this.ordinals = ordinals;
+        }
+
+        // Emit a requirement and return where its evaluation starts
+        int emit(PrerequisiteExpression requirement, int onTrue, int onFalse) {
+            boolean all = requirement.getKind() != PrerequisiteExpression.Kind.ANY_OF;
+            List<PrerequisiteExpression> leaves = new ArrayList<>();
+            List<PrerequisiteExpression> groups = new ArrayList<>();
+            flatten(requirement, requirement.getKind(), leaves, groups);
+
+            // Merge the group's leaves per word; year standings merge to the strictest (allOf) or
+            // the most lenient (anyOf) level
+            Map<Integer, Long> passedWords = new LinkedHashMap<>();
+            Map<Integer, Long> concurrentWords = new LinkedHashMap<>();
+            int year = -1;
+            for (PrerequisiteExpression leaf : leaves) {
+                if (leaf.getKind() == PrerequisiteExpression.Kind.YEAR_STANDING) {
+                    year = year < 0 ? leaf.getYear() : all ? Math.max(year, leaf.getYear()) : Math.min(year, leaf.getYear());
+                } else {
+                    int ordinal = ordinals.applyAsInt(leaf.getCode());
+                    Map<Integer, Long> words = leaf.getKind() == PrerequisiteExpression.Kind.PREREQUISITE
+                            ? passedWords : concurrentWords;
+                    words.merge(ordinal >>> 6, 1L << ordinal, (a, b) -> a | b);
+                }
+            }
+
+            // Back to front: nested groups, then corequisites, year standing and prerequisites
+            int next = all ? onTrue : onFalse;
+            for (int i = groups.size() - 1; i >= 0; i--) {
+                next = all ? emit(groups.get(i), next, onFalse) : emit(groups.get(i), onTrue, next);
+            }
+            next = emitWords(concurrentWords, all ? ALL_CONCURRENT : ANY_CONCURRENT, all, next, onTrue, onFalse);
+            if (year >= 0) {
+                next = all ? instruction(YEAR_STANDING, year, 0L, next, onFalse)
+                        : instruction(YEAR_STANDING, year, 0L, onTrue, next);
+            }
+            return emitWords(passedWords, all ? ALL_PASSED : ANY_PASSED, all, next, onTrue, onFalse);
+        }
+
+        private int emitWords(Map<Integer, Long> words, int op, boolean all, int next, int onTrue, int onFalse) {
+            List<Map.Entry<Integer, Long>> entries = new ArrayList<>(words.entrySet());
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                int word = entries.get(i).getKey();
+                long mask = entries.get(i).getValue();
+                next = all ? instruction(op, word, mask, next, onFalse) : instruction(op, word, mask, onTrue, next);
+            }
+            return next;
+        }
+
+        // Leaves and nested groups of a group, looking through nested groups of the same kind
+        private static void flatten(PrerequisiteExpression group, PrerequisiteExpression.Kind kind,
+                                    List<PrerequisiteExpression> leaves, List<PrerequisiteExpression> groups) {
+            for (PrerequisiteExpression child : group.getChildren()) {
+                boolean leaf = child.getKind() != PrerequisiteExpression.Kind.ALL_OF
+                        && child.getKind() != PrerequisiteExpression.Kind.ANY_OF;
+                if (leaf) {
+                    leaves.add(child);
+                } else if (child.getKind() == kind || child.getChildren().size() == 1) {
+                    // Also drops an empty allOf inside allOf, which is always met
+                    flatten(child, kind, leaves, groups);
+                } else {
+                    groups.add(child);
+                }
+            }
+        }
+
+        int instruction(int op, int operand, long mask, int onTrue, int onFalse) {
+            instructions.add(new int[]{op, operand, onTrue, onFalse});
+            bits.add(mask);
+            return instructions.size() - 1;
+        }
+
+        // Keep the instructions reachable from the entry, renumbered so the entry comes first.
+        // Every jump targets an instruction emitted earlier, so reverse emission order keeps all
+        // jumps pointing forward.
+        PrerequisiteMask finish(int entry) {
+            boolean[] reachable = new boolean[instructions.size()];
+            markReachable(entry, reachable);
+            int[] numbers = new int[instructions.size()];
+            int count = 0;
+            for (int i = instructions.size() - 1; i >= 0; i--) {
+                numbers[i] = reachable[i] ? count++ : -1;
+            }
+
+            int[] program = new int[count * INSTRUCTION_SIZE];
+            long[] programBits = new long[count];
+            for (int i = 0; i < instructions.size(); i++) {
+                if (!reachable[i]) {
+                    continue;
+                }
+                int[] instruction = instructions.get(i);
+                int at = numbers[i] * INSTRUCTION_SIZE;
+                program[at] = instruction[0];
+                program[at + 1] = instruction[1];
+                program[at + 2] = instruction[2] < 0 ? instruction[2] : numbers[instruction[2]];
+                program[at + 3] = instruction[3] < 0 ? instruction[3] : numbers[instruction[3]];
+                programBits[numbers[i]] = bits.get(i);
+            }
+            return ofProgram(program, programBits);
+        }
+
+        private void markReachable(int index, boolean[] reachable) {
+            if (index < 0 || reachable[index]) {
+                return;
+            }
+            reachable[index] = true;
+            markReachable(instructions.get(index)[2], reachable);
+            markReachable(instructions.get(index)[3], reachable);
+        }
+    }
+}
@@ -2,6 +2,7 @@ public class Program {
     private String programCode;
     private String name;
     private Curriculum curriculum;
+    private String curriculumPath;
 
     public Program(String programCode, String name, Curriculum curriculum) {
         this.programCode = programCode;
@@ -9,11 +10,37 @@ public class Program {
         this.curriculum = curriculum;
     }
 
+    // Program whose curriculum is only loaded (through CurriculumRegistry) when first requested
+    public Program(String programCode, String name, String curriculumPath) {
+        this.programCode = programCode;
+        this.name = name;
+        this.curriculumPath = curriculumPath;
+    }
+
     public String getProgramCode() {
         return programCode;
     }
 
-    public Curriculum getCurriculum() {
+    public String getName() {
+        return name;
+    }
+
+    public synchronized Curriculum getCurriculum() {
+        if (curriculumPath != null) {
+            // Rewrap only when the registry hands out a new snapshot
+            CurriculumIndex index = CurriculumRegistry.get(curriculumPath);
+            if (curriculum == null || curriculum.getIndex() != index) {
+                curriculum = new Curriculum(index);
+            }
+        }
         return curriculum;
     }
-}
\ No newline at end of file
+
+    // Compiled curriculum of this program, loading it on first use
+    public CurriculumIndex getCurriculumIndex() {
+        if (curriculumPath != null) {
+            return CurriculumRegistry.get(curriculumPath);
+        }
+        return curriculum.getIndex();
+    }
+}
@@ -0,0 +1,211 @@
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Size-bounded LRU cache of recommendation results. Keys are the curriculum snapshot's id, the
+// bitset-encoded pass/fail history (which is canonical: entry order and codes outside the
+// curriculum do not matter) and the current term. Entries of a snapshot the registry has replaced
+// or cleared are never served, and are dropped as soon as a newer snapshot is used, as are those
+// of snapshots that have been garbage collected. Keys hold only the id and snapshots are tracked
+// through weak references, so curricula that are no longer in use are not kept alive by the cache.
+//
+// Entries are spread over stripes by key hash, each its own LRU map with its own lock and a share
+// of the capacity, so threads looking up different keys rarely wait for each other. Safe to share
+// between threads, programs and StudentEval instances.
+public final class RecommendationCache {
+    private static final int MAX_STRIPES = 16;
+
+    private final Stripe[] stripes;
+    private final Map<Long, SnapshotRef> snapshots = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public RecommendationCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1");
+        }
+        // Stripe capacities add up to maxEntries exactly
+        this.stripes = new Stripe[Math.min(MAX_STRIPES, maxEntries)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(maxEntries / stripes.length + (i < maxEntries % stripes.length ? 1 : 0));
+        }
+    }
+
+    // Cached result for the history and term, computing and storing it on a miss.
+    // Callers get their own copy of the list. The variant separates results of different solver modes.
+    List<Subject> get(CurriculumIndex snapshot, AcademicRecord record, int currentYear, int currentSemester,
+                      int variant, Supplier<List<Subject>> compute) {
+        if (snapshot.isSuperseded()) {
+            // A replaced or cleared curriculum: compute directly, without touching the cache
+            misses.incrementAndGet();
+            return compute.get();
+        }
+        if (!snapshots.containsKey(snapshot.getSnapshotId())) {
+            track(snapshot);
+        }
+        Key key = new Key(snapshot.getSnapshotId(), record, currentYear, currentSemester, variant);
+        Stripe stripe = stripeFor(key);
+
+        synchronized (stripe) {
+            List<Subject> cached = stripe.entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return new ArrayList<>(cached);
+            }
+        }
+
+        // Computed outside the lock; two threads missing on the same key both compute it
+        misses.incrementAndGet();
+        List<Subject> result = compute.get();
+
+        synchronized (stripe) {
+            if (!snapshot.isSuperseded()) {
+                stripe.entries.put(key, Collections.unmodifiableList(new ArrayList<>(result)));
+            }
+        }
+        return result;
+    }
+
+    // Start tracking a snapshot seen for the first time, and drop the entries of every snapshot
+    // that has since been superseded or collected
+    private synchronized void track(CurriculumIndex snapshot) {
+        if (snapshots.containsKey(snapshot.getSnapshotId())) {
+            return;
+        }
+        snapshots.put(snapshot.getSnapshotId(), new SnapshotRef(snapshot));
+
+        for (Iterator<SnapshotRef> it = snapshots.values().iterator(); it.hasNext(); ) {
+            SnapshotRef tracked = it.next();
+            CurriculumIndex curriculum = tracked.get();
+            if (curriculum == null || curriculum.isSuperseded()) {
+                it.remove();
+                drop(tracked.snapshotId);
+            }
+        }
+    }
+
+    private void drop(long snapshotId) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.keySet().removeIf(key -> key.snapshotId == snapshotId);
+            }
+        }
+        invalidations.incrementAndGet();
+    }
+
+    private Stripe stripeFor(Key key) {
+        int hash = key.hash ^ (key.hash >>> 16);
+        return stripes[(hash & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    public synchronized void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+            }
+        }
+        snapshots.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    // Number of curriculum snapshots whose entries were dropped after a reload or collection
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    public double getHitRate() {
+        long lookups = hits.get() + misses.get();
+        return lookups == 0 ? 0.0 : (double) hits.get() / lookups;
+    }
+
+    // One LRU share of the cache, guarded by its own monitor
+    private final class Stripe {
+        final Map<Key, List<Subject>> entries;
+
+        Stripe(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, List<Subject>> eldest) {
+                    if (size() > capacity) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static final class SnapshotRef extends WeakReference<CurriculumIndex> {
+        final long snapshotId;
+
+        SnapshotRef(CurriculumIndex snapshot) {
+            super(snapshot);
+            this.snapshotId = snapshot.getSnapshotId();
+        }
+    }
+
+    private static final class Key {
+        final long snapshotId;
+        final AcademicRecord record;
+        final int currentYear;
+        final int currentSemester;
+        final int variant;
+        final int hash;
+
+        Key(long snapshotId, AcademicRecord record, int currentYear, int currentSemester, int variant) {
+            this.snapshotId = snapshotId;
+            this.record = record;
+            this.currentYear = currentYear;
+            this.currentSemester = currentSemester;
+            this.variant = variant;
+            this.hash = 31 * (31 * (31 * (31 * Long.hashCode(snapshotId) + record.hashCode())
+                    + currentYear) + currentSemester) + variant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && snapshotId == other.snapshotId && currentYear == other.currentYear &&
+                    currentSemester == other.currentSemester && variant == other.variant &&
+                    record.equals(other.record);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Converts between the JSON student records used by the HTTP service and batch mode and the
+// engine's Student/Subject objects.
+//
+// Request:  {"studentId": "2021-0001", "program": "BSIT", "year": 1, "semester": 2,
+//            "history": {"eng100": true, "math100": false}}
+// Response: {"studentId": "2021-0001", "program": "BSIT", "subjects": [{"code": "eng101", "units": 3}],
+//            "totalUnits": 3}
+//
+// A record without "history" is treated as a new student.
+public final class RecommendationJson {
+    private RecommendationJson() {
+    }
+
+    public static Student readStudent(Map<String, Object> json, School school) {
+        return readStudent(json, school, Program::getCurriculumIndex);
+    }
+
+    // Read with each program's curriculum supplied by the caller, such as a batch's pinned ones
+    static Student readStudent(Map<String, Object> json, School school,
+                               Function<Program, CurriculumIndex> curricula) {
+        String studentId = optionalString(json, "studentId", "");
+        String programCode = optionalString(json, "program", "BSIT");
+        Program program = school.getProgram(programCode);
+        if (program == null) {
+            throw new IllegalArgumentException("Unknown program: " + programCode);
+        }
+
+        Object history = json.get("history");
+        Student student = new Student(studentId, program.getProgramCode(), history == null);
+        if (history == null) {
+            return student;
+        }
+        if (!(history instanceof Map)) {
+            throw new IllegalArgumentException("history must be an object of subject code to pass/fail");
+        }
+
+        // Record curriculum subjects where possible so the student's taken subjects carry units
+        CurriculumIndex curriculum = curricula.apply(program);
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) history).entrySet()) {
+            String code = (String) entry.getKey();
+            if (!(entry.getValue() instanceof Boolean)) {
+                throw new IllegalArgumentException("history value for " + code + " must be true or false");
+            }
+            Subject subject = curriculum.getSubject(code);
+            student.addTakenSubject(subject != null ? subject : new Subject(code, 0), (Boolean) entry.getValue());
+        }
+
+        student.setCurrentTerm(requiredInt(json, "year"), requiredInt(json, "semester"));
+        return student;
+    }
+
+    public static String writeResult(Student student, List<Subject> subjects) {
+        StringBuilder out = new StringBuilder(64 + subjects.size() * 32);
+        int totalUnits = 0;
+
+        out.append("{\"studentId\":");
+        Json.quote(out, student.getStudentId());
+        out.append(",\"program\":");
+        Json.quote(out, student.getProgramCode());
+        out.append(",\"subjects\":[");
+        for (int i = 0; i < subjects.size(); i++) {
+            Subject subject = subjects.get(i);
+            if (i > 0) out.append(',');
+            out.append("{\"code\":");
+            Json.quote(out, subject.getCode());
+            out.append(",\"units\":").append(subject.getUnits()).append('}');
+            totalUnits += subject.getUnits();
+        }
+        out.append("],\"totalUnits\":").append(totalUnits).append('}');
+        return out.toString();
+    }
+
+    public static String writeError(String message) {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        Json.quote(out, message == null ? "Unknown error" : message);
+        return out.append('}').toString();
+    }
+
+    private static String optionalString(Map<String, Object> json, String field, String defaultValue) {
+        Object value = json.get(field);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException(field + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static int requiredInt(Map<String, Object> json, String field) {
+        Object value = json.get(field);
+        if (!(value instanceof Long)
+                || (Long) value < Integer.MIN_VALUE || (Long) value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(field + " must be an integer");
+        }
+        return ((Long) value).intValue();
+    }
+}
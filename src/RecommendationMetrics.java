@@ -0,0 +1,139 @@
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide instrumentation of StudentEval's recommendation phases and of curriculum loading,
+// exposed as MBeans under "meryl.eval". Off unless started with -Dmeryl.metrics=true or enabled
+// through JMX; while off, a recommendation pays one volatile read and no clock reads.
+public final class RecommendationMetrics implements RecommendationMetricsMBean {
+    public static final String DOMAIN = "meryl.eval";
+
+    private static final RecommendationMetrics INSTANCE = new RecommendationMetrics();
+    private static volatile boolean enabled = Boolean.getBoolean("meryl.metrics");
+    private static boolean registered;
+
+    final PhaseMetrics retakes = new PhaseMetrics("addRetakeSubjects");
+    final PhaseMetrics nextSemester = new PhaseMetrics("addNextSemesterCoreSubjects");
+    final PhaseMetrics advanced = new PhaseMetrics("addAdvancedEligibleSubjects");
+    final PhaseMetrics any = new PhaseMetrics("addAnyEligibleSubjects");
+    private final PhaseMetrics curriculumLoad = new PhaseMetrics("curriculumLoad");
+    private final LongAdder recommendations = new LongAdder();
+    private volatile long lastCurriculumLoadNanos;
+
+    private RecommendationMetrics() {
+    }
+
+    public static RecommendationMetrics get() {
+        return INSTANCE;
+    }
+
+    // The metrics to record into, or null while instrumentation is off
+    static RecommendationMetrics active() {
+        return enabled ? INSTANCE : null;
+    }
+
+    // Register the metrics with the platform MBean server; safe to call more than once
+    public static synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, INSTANCE, new ObjectName(DOMAIN + ":type=RecommendationMetrics"));
+            for (PhaseMetrics phase : INSTANCE.phases()) {
+                register(server, phase, new ObjectName(DOMAIN + ":type=PhaseMetrics,name=" + phase.getName()));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register recommendation metrics: " + e.getMessage(), e);
+        }
+        registered = true;
+    }
+
+    private static void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        try {
+            server.registerMBean(bean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by an earlier class loader; keep the existing bean
+        }
+    }
+
+    private PhaseMetrics[] phases() {
+        return new PhaseMetrics[]{retakes, nextSemester, advanced, any, curriculumLoad};
+    }
+
+    void recordRecommendation() {
+        recommendations.increment();
+    }
+
+    // Curriculum loads are rare, so they are recorded even while instrumentation is off
+    static void recordCurriculumLoad(long nanos) {
+        INSTANCE.lastCurriculumLoadNanos = nanos;
+        INSTANCE.curriculumLoad.record(nanos);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        RecommendationMetrics.enabled = enabled;
+    }
+
+    @Override
+    public long getRecommendations() {
+        return recommendations.sum();
+    }
+
+    @Override
+    public long getAdvancedPhaseTriggers() {
+        return advanced.getCount();
+    }
+
+    @Override
+    public long getAnyPhaseTriggers() {
+        return any.getCount();
+    }
+
+    @Override
+    public double getAdvancedPhaseTriggerRate() {
+        long total = recommendations.sum();
+        return total == 0 ? 0.0 : (double) advanced.getCount() / total;
+    }
+
+    @Override
+    public double getAnyPhaseTriggerRate() {
+        long total = recommendations.sum();
+        return total == 0 ? 0.0 : (double) any.getCount() / total;
+    }
+
+    @Override
+    public double getLookAheadTimeShare() {
+        long lookAhead = advanced.getTotalNanos() + any.getTotalNanos();
+        long total = retakes.getTotalNanos() + nextSemester.getTotalNanos() + lookAhead;
+        return total == 0 ? 0.0 : (double) lookAhead / total;
+    }
+
+    @Override
+    public long getCurriculumLoads() {
+        return curriculumLoad.getCount();
+    }
+
+    @Override
+    public double getLastCurriculumLoadMillis() {
+        return lastCurriculumLoadNanos / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        for (PhaseMetrics phase : phases()) {
+            phase.reset();
+        }
+        recommendations.reset();
+        lastCurriculumLoadNanos = 0;
+    }
+}
@@ -0,0 +1,26 @@
+// JMX view of recommendation engine metrics; per-phase detail is in the PhaseMetrics MBeans
+public interface RecommendationMetricsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getRecommendations();
+
+    long getAdvancedPhaseTriggers();
+
+    long getAnyPhaseTriggers();
+
+    // Share of recommendations that needed the look-ahead (phase 3) and catch-all (phase 4) phases
+    double getAdvancedPhaseTriggerRate();
+
+    double getAnyPhaseTriggerRate();
+
+    // Share of time spent across all four phases that went to phases 3 and 4
+    double getLookAheadTimeShare();
+
+    long getCurriculumLoads();
+
+    double getLastCurriculumLoadMillis();
+
+    void reset();
+}
@@ -0,0 +1,128 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Headless HTTP endpoint for recommendations, built on the JDK's HttpServer.
+//
+//   POST /recommendations   body and response as described in RecommendationJson
+//
+// Every request is handled on its own virtual thread (or, before Java 21, on a bounded pool of
+// platform threads where extra requests wait in line) and all requests share the registry's
+// curriculum snapshots and one result cache.
+public class RecommendationServer {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_CACHE_SIZE = 10_000;
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int PLATFORM_THREADS_PER_CPU = 4;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final School school;
+    private final StudentEval engine;
+
+    public RecommendationServer(int port, School school, RecommendationCache cache) throws IOException {
+        this.school = school;
+        this.engine = new StudentEval(school, school.getPrograms().iterator().next().getProgramCode(), cache);
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/recommendations", this::handleRecommendations);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleRecommendations(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, RecommendationJson.writeError("Use POST"));
+                return;
+            }
+
+            String body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                respond(exchange, 413, RecommendationJson.writeError("Request body too large"));
+                return;
+            }
+
+            Student student = RecommendationJson.readStudent(Json.parseObject(body), school);
+            List<Subject> subjects = engine.getRecommendedSubjects(student);
+            respond(exchange, 200, RecommendationJson.writeResult(student, subjects));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, RecommendationJson.writeError(e.getMessage()));
+        } catch (RuntimeException e) {
+            System.err.println("Error computing recommendations: " + e.getMessage());
+            respond(exchange, 500, RecommendationJson.writeError("Internal error"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Read the request body, or return null if it exceeds MAX_BODY_BYTES
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_BODY_BYTES) {
+                return null;
+            }
+        }
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Virtual threads when running on Java 21+; the build targets Java 17, hence the lookup
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(8, PLATFORM_THREADS_PER_CPU * Runtime.getRuntime().availableProcessors());
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        RecommendationMetrics.registerMBeans();
+        RecommendationServer server = new RecommendationServer(port, School.getDefault(),
+                new RecommendationCache(DEFAULT_CACHE_SIZE));
+        server.start();
+        System.out.println("Recommendation service listening on port " + server.getPort());
+    }
+}
@@ -1,23 +1,59 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 
 public class School {
+    private static final School defaultSchool = createDefault();
+
     private String name;
-    private List<Program> programs;
+    private Map<String, Program> programs;
 
     public School(String name) {
         this.name = name;
-        this.programs = new ArrayList<>();
+        this.programs = new LinkedHashMap<>();
+    }
+
+    // The programs offered by the student form, each with a lazily loaded curriculum
+    public static School getDefault() {
+        return defaultSchool;
+    }
+
+    private static School createDefault() {
+        School school = new School("Default School");
+        school.addProgram(new Program("BSIT", "BS Information Technology", curriculumPath("BSIT")));
+        school.addProgram(new Program("BSIS", "BS Information Systems", curriculumPath("BSIS")));
+        school.addProgram(new Program("BSCS", "BS Computer Science", curriculumPath("BSCS")));
+        return school;
+    }
+
+    // Programs without their own src/curriculum-<code>.xml share the default curriculum
+    private static String curriculumPath(String programCode) {
+        String path = "src/curriculum-" + programCode.toLowerCase(Locale.ROOT) + ".xml";
+        return Files.exists(Paths.get(path)) ? path : CurriculumRegistry.DEFAULT_CURRICULUM;
+    }
+
+    public String getName() {
+        return name;
     }
 
     public void addProgram(Program program) {
-        programs.add(program);
+        programs.put(normalize(program.getProgramCode()), program);
     }
 
+    // Program codes are matched case-insensitively, so "bsit" finds BSIT
     public Program getProgram(String programCode) {
-        return programs.stream()
-                .filter(p -> p.getProgramCode().equals(programCode))
-                .findFirst()
-                .orElse(null);
+        return programCode == null ? null : programs.get(normalize(programCode));
+    }
+
+    public Collection<Program> getPrograms() {
+        return Collections.unmodifiableCollection(programs.values());
+    }
+
+    private static String normalize(String programCode) {
+        return programCode.trim().toUpperCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Seats left per subject code during enrollment, shared by every thread handing out recommendations.
+// Each subject's seats are split across a few padded counters (stripes) that are updated with CAS,
+// so many students taking the same popular subject do not all hit one memory word. A taker starts at
+// a random stripe and moves on to the next when it is empty; a seat is only ever taken from a
+// positive counter, so a subject can never be oversold. Subjects without a capacity are unlimited.
+//
+// Seats are held by a SeatReservation until it is confirmed; unconfirmed holds expire after the
+// hold time and their seats go back to the counters. Finished holds wait in one of several expiry
+// queues, picked at random like the counter stripes, and each new reservation only sweeps one of
+// them, so threads handing out recommendations do not all meet at the head and tail of one queue.
+public final class SeatLedger {
+    private static final int PADDING = 16; // ints per stripe, one 64-byte cache line
+    private static final int MAX_STRIPES = 64;
+
+    private final Map<String, Seats> seats = new ConcurrentHashMap<>();
+    private final List<ConcurrentLinkedQueue<SeatReservation>> pending = new ArrayList<>();
+    private final long holdNanos;
+    private final int stripes;
+
+    public SeatLedger(long holdTime, TimeUnit unit) {
+        if (holdTime <= 0) {
+            throw new IllegalArgumentException("Hold time must be positive");
+        }
+        this.holdNanos = unit.toNanos(holdTime);
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, processors - 1)) << 1);
+        for (int i = 0; i < stripes; i++) {
+            pending.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    // Open a subject with the given number of seats, replacing any earlier counter.
+    // Seats held from the earlier counter go back to it, not to the new one.
+    public void setCapacity(String code, int capacity) {
+        if (code == null) {
+            throw new IllegalArgumentException("Subject code cannot be null");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        seats.put(code, new Seats(capacity, stripes));
+    }
+
+    // Add seats to a subject that already has a capacity, e.g. when another section opens
+    public void addSeats(String code, int count) {
+        Seats subject = seats.get(code);
+        if (subject == null) {
+            throw new IllegalArgumentException("No capacity set for " + code);
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Seat count cannot be negative");
+        }
+        subject.giveBack(0, count);
+    }
+
+    // Seats not currently held or confirmed, or -1 for subjects without a capacity
+    public int getAvailable(String code) {
+        Seats subject = seats.get(code);
+        return subject == null ? -1 : subject.available();
+    }
+
+    public boolean hasCapacity(String code) {
+        return seats.containsKey(code);
+    }
+
+    // Number of reservations still waiting for confirmation, expired ones included until swept
+    public int getPendingCount() {
+        int count = 0;
+        for (ConcurrentLinkedQueue<SeatReservation> queue : pending) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    // Return the seats of every hold whose time is up; returns how many holds expired.
+    // Each new reservation also sweeps one queue, so calling it is only needed when idle.
+    public int expireReservations() {
+        long now = System.nanoTime();
+        int expired = 0;
+        for (ConcurrentLinkedQueue<SeatReservation> queue : pending) {
+            expired += expire(queue, now);
+        }
+        return expired;
+    }
+
+    // Holds all last the same time, so each queue is (nearly) in expiry order
+    private static int expire(ConcurrentLinkedQueue<SeatReservation> queue, long now) {
+        int expired = 0;
+        for (SeatReservation head = queue.peek(); head != null; head = queue.peek()) {
+            if (head.isPending() && now - head.getDeadlineNanos() < 0) {
+                break;
+            }
+            if (queue.remove(head) && head.expire()) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    // Start an empty hold for a student
+    SeatReservation open(String studentId) {
+        long now = System.nanoTime();
+        expire(pending.get(ThreadLocalRandom.current().nextInt(stripes)), now);
+        return new SeatReservation(this, studentId, now + holdNanos);
+    }
+
+    // Watch a finished hold for expiry
+    void track(SeatReservation reservation) {
+        pending.get(ThreadLocalRandom.current().nextInt(stripes)).add(reservation);
+    }
+
+    // Counter of a subject, or null if it is unlimited
+    Seats seatsFor(String code) {
+        return seats.get(code);
+    }
+
+    // Remaining seats of one subject, spread over padded stripes
+    static final class Seats {
+        private final AtomicIntegerArray counters;
+        private final int stripes;
+
+        Seats(int capacity, int stripes) {
+            this.stripes = stripes;
+            this.counters = new AtomicIntegerArray(stripes * PADDING);
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                counters.set(stripe * PADDING, capacity / stripes + (stripe < capacity % stripes ? 1 : 0));
+            }
+        }
+
+        // Take one seat; returns the stripe it came from, or -1 if there are none left
+        int take() {
+            int firstStripe = ThreadLocalRandom.current().nextInt(stripes);
+            for (int i = 0; i < stripes; i++) {
+                int stripe = (firstStripe + i) & (stripes - 1);
+                int index = stripe * PADDING;
+                for (int left = counters.get(index); left > 0; left = counters.get(index)) {
+                    if (counters.compareAndSet(index, left, left - 1)) {
+                        return stripe;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        void giveBack(int stripe, int count) {
+            counters.addAndGet(stripe * PADDING, count);
+        }
+
+        int available() {
+            int total = 0;
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                total += counters.get(stripe * PADDING);
+            }
+            return total;
+        }
+    }
+}
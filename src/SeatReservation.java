@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Seats held in a SeatLedger for one student's recommended subjects. The student confirms to keep
+// them; otherwise they go back to the ledger when released or once the hold time runs out.
+// State changes are single CAS steps, so confirm, release and expiry can race safely.
+public final class SeatReservation {
+    private static final int BUILDING = 0; // Seats still being taken by the recommendation
+    private static final int PENDING = 1;
+    private static final int CONFIRMED = 2;
+    private static final int RELEASED = 3;
+    private static final int EXPIRED = 4;
+
+    private final SeatLedger ledger;
+    private final String studentId;
+    private final long deadlineNanos;
+    private final AtomicInteger state = new AtomicInteger(BUILDING);
+    private final List<Subject> subjects = new ArrayList<>();
+    private final List<SeatLedger.Seats> held = new ArrayList<>(); // Counter per subject, null if unlimited
+    private int[] stripes = new int[8]; // Stripe each seat came from, per subject
+
+    SeatReservation(SeatLedger ledger, String studentId, long deadlineNanos) {
+        this.ledger = ledger;
+        this.studentId = studentId;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    // Hold a seat for a subject; false if the subject is full. Only called while building.
+    boolean hold(Subject subject) {
+        SeatLedger.Seats seats = ledger.seatsFor(subject.getCode());
+        int stripe = -1;
+        if (seats != null) {
+            stripe = seats.take();
+            if (stripe < 0) {
+                return false;
+            }
+        }
+        if (subjects.size() == stripes.length) {
+            stripes = Arrays.copyOf(stripes, stripes.length * 2);
+        }
+        stripes[subjects.size()] = stripe;
+        held.add(seats);
+        subjects.add(subject);
+        return true;
+    }
+
+    // Give back the last holds, when subjects that must be taken together could not all be held.
+    // Only called while building.
+    void unhold(int count) {
+        for (int i = 0; i < count; i++) {
+            int last = subjects.size() - 1;
+            SeatLedger.Seats seats = held.remove(last);
+            subjects.remove(last);
+            if (seats != null) {
+                seats.giveBack(stripes[last], 1);
+            }
+        }
+    }
+
+    // Done taking seats; the hold now waits for confirmation. Seats are returned at once if the
+    // hold already expired while it was being built.
+    void finish() {
+        if (state.compareAndSet(BUILDING, PENDING)) {
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                expire();
+            } else {
+                ledger.track(this);
+            }
+        }
+    }
+
+    // Return every seat after the recommendation failed part way
+    void abandon() {
+        if (state.compareAndSet(BUILDING, RELEASED)) {
+            returnSeats();
+        }
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    // Recommended subjects, each with a seat held
+    public List<Subject> getSubjects() {
+        return Collections.unmodifiableList(subjects);
+    }
+
+    long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    // Keep the seats; false if the hold already expired or was released. Confirming again is fine,
+    // even after the deadline.
+    public boolean confirm() {
+        if (state.get() == PENDING && System.nanoTime() - deadlineNanos >= 0) {
+            expire();
+        }
+        return state.compareAndSet(PENDING, CONFIRMED) || state.get() == CONFIRMED;
+    }
+
+    // Give the seats back, e.g. when the student picks other subjects or later drops these;
+    // false if they were already returned
+    public boolean release() {
+        for (int current = state.get(); current == PENDING || current == CONFIRMED; current = state.get()) {
+            if (state.compareAndSet(current, RELEASED)) {
+                returnSeats();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isPending() {
+        return state.get() == PENDING;
+    }
+
+    public boolean isConfirmed() {
+        return state.get() == CONFIRMED;
+    }
+
+    // Return the seats if the hold was never confirmed
+    boolean expire() {
+        if (state.compareAndSet(PENDING, EXPIRED)) {
+            returnSeats();
+            return true;
+        }
+        return false;
+    }
+
+    private void returnSeats() {
+        for (int i = 0; i < held.size(); i++) {
+            if (held.get(i) != null) {
+                held.get(i).giveBack(stripes[i], 1);
+            }
+        }
+    }
+}
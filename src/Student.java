@@ -8,14 +8,24 @@ public class Student {
     private String programCode;
     private boolean isNew;
     private Map<String, Subject> takenSubjects;
+    private Map<String, Boolean> academicHistory;
     private List<String> currentSubjects;
+    private int currentYear;
+    private int currentSemester;
 
     public Student(String studentId, String programCode, boolean isNew) {
         this.studentId = studentId;
         this.programCode = programCode;
         this.isNew = isNew;
         this.takenSubjects = new HashMap<>();
+        this.academicHistory = new HashMap<>();
         this.currentSubjects = new ArrayList<>();
+        this.currentYear = 1;
+        this.currentSemester = 1;
+    }
+
+    public String getStudentId() {
+        return studentId;
     }
 
     public boolean isNew() {
@@ -27,7 +37,31 @@ public class Student {
     }
 
     public void addTakenSubject(Subject subject) {
+        addTakenSubject(subject, true);
+    }
+
+    // Record a taken subject along with whether it was passed
+    public void addTakenSubject(Subject subject, boolean passed) {
         takenSubjects.put(subject.getCode(), subject);
+        academicHistory.put(subject.getCode(), passed);
+    }
+
+    // Pass/fail result for every taken subject, keyed by subject code
+    public Map<String, Boolean> getAcademicHistory() {
+        return academicHistory;
+    }
+
+    public void setCurrentTerm(int year, int semester) {
+        this.currentYear = year;
+        this.currentSemester = semester;
+    }
+
+    public int getCurrentYear() {
+        return currentYear;
+    }
+
+    public int getCurrentSemester() {
+        return currentSemester;
     }
 
     public void setCurrentSubjects(List<String> subjects) {
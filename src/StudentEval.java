@@ -1,35 +1,122 @@
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.File;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class StudentEval {
-    private List<Subject> allSubjects;
+    // How the unit load is filled: the greedy phase order, or the knapsack solver which picks the
+    // highest-priority subject set closest to IDEAL_UNITS (falling back to greedy past its time budget)
+    public enum LoadSolver { GREEDY, OPTIMAL }
+
+    private final CurriculumIndex curriculum;
+    private final RecommendationCache cache;
+    private final School school; // Used to route students of other programs; null for a fixed curriculum
+    private final LoadSolver solver;
+    private final long solverBudgetNanos;
+    private final Map<Program, StudentEval> pinned; // Program evaluators fixed by pinCurricula, or null
     private static final int MAX_UNITS = 26;
     private static final int MIN_UNITS = 18;
     private static final int IDEAL_UNITS = 21; // Target for optimal academic load
+    private static final int FIRST_TERM = Term.of(1, 1);
+    private static final int LAST_TERM = Term.of(4, 2); // Recommendations never go past it
+    private static final int BATCH_SPLIT_THRESHOLD = 64; // Students handled per fork/join leaf
+    private static final long DEFAULT_SOLVER_BUDGET_NANOS = 2_000_000; // 2 ms per recommendation
+
+    // Solver priorities: each tier outweighs any number of subjects from the tiers below it
+    private static final long RETAKE_SCORE = 1L << 42;
+    private static final long ON_TRACK_SCORE = 1L << 28;
+    private static final long LOOK_AHEAD_SCORE = 1L << 14;
+    private static final long BACKLOG_SCORE = 1L;
+    private static final int REQUIRED_SCORE_SHIFT = 28; // Retakes and on-track subjects
+
+    // One reusable context per thread for the greedy phases
+    private static final ThreadLocal<RecommendationContext> CONTEXTS =
+            ThreadLocal.withInitial(RecommendationContext::new);
 
     public StudentEval(String program) {
-        this.allSubjects = loadCurriculum();
+        this(School.getDefault(), program, null);
+    }
+
+    // Evaluate against the curriculum of one of the school's programs; cache may be null
+    public StudentEval(School school, String program, RecommendationCache cache) {
+        this(programCurriculum(school, program), cache, school);
+    }
+
+    // Evaluate against an already loaded curriculum snapshot
+    public StudentEval(CurriculumIndex curriculum) {
+        this(curriculum, null, null);
+    }
+
+    // Evaluate with results served from (and stored in) a shared cache; cache may be null
+    public StudentEval(CurriculumIndex curriculum, RecommendationCache cache) {
+        this(curriculum, cache, null);
     }
 
-    private List<Subject> loadCurriculum() {
-        String path = "src/curriculum.xml";
+    private StudentEval(CurriculumIndex curriculum, RecommendationCache cache, School school) {
+        this(curriculum, cache, school, LoadSolver.GREEDY, DEFAULT_SOLVER_BUDGET_NANOS, null);
+    }
+
+    private StudentEval(CurriculumIndex curriculum, RecommendationCache cache, School school,
+                        LoadSolver solver, long solverBudgetNanos, Map<Program, StudentEval> pinned) {
+        this.curriculum = curriculum;
+        this.cache = cache;
+        this.school = school;
+        this.solver = solver;
+        this.solverBudgetNanos = solverBudgetNanos;
+        this.pinned = pinned;
+    }
 
-        return parseCurriculum(path);
+    // Same evaluator using the given load solver with the default time budget
+    public StudentEval withLoadSolver(LoadSolver solver) {
+        return withLoadSolver(solver, DEFAULT_SOLVER_BUDGET_NANOS);
+    }
+
+    // Same evaluator using the given load solver; OPTIMAL falls back to greedy after budgetNanos
+    public StudentEval withLoadSolver(LoadSolver solver, long budgetNanos) {
+        if (solver == null) {
+            throw new IllegalArgumentException("Load solver cannot be null");
+        }
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Solver time budget must be positive");
+        }
+        StudentEval eval = new StudentEval(curriculum, cache, school, solver, budgetNanos, null);
+        return pinned != null ? eval.pinCurricula() : eval;
+    }
+
+    // Same evaluator with every program's curriculum resolved once now. Routing a student by program
+    // is then a map lookup rather than a registry check of the curriculum file, and a batch sees one
+    // curriculum generation from start to finish. Batch runs pin for their duration.
+    public StudentEval pinCurricula() {
+        if (school == null || pinned != null) {
+            return this;
+        }
+
+        Map<Program, StudentEval> evals = new IdentityHashMap<>();
+        for (Program program : school.getPrograms()) {
+            evals.put(program, new StudentEval(program.getCurriculumIndex(), cache, school, solver,
+                    solverBudgetNanos, null));
+        }
+        return new StudentEval(curriculum, cache, school, solver, solverBudgetNanos,
+                Collections.unmodifiableMap(evals));
+    }
+
+    // Curriculum the program's students are evaluated against: the pinned one if there is one
+    CurriculumIndex curriculumFor(Program program) {
+        return evalFor(program).curriculum;
+    }
+
+    private static CurriculumIndex programCurriculum(School school, String programCode) {
+        Program program = school.getProgram(programCode);
+        if (program == null) {
+            throw new IllegalArgumentException("Unknown program: " + programCode);
+        }
+        return program.getCurriculumIndex();
     }
 
     // For freshmen students - Only return First Year, First Sem subjects
     public List<Subject> getRecommendedSubjects() {
-        return allSubjects.stream()
-                .filter(subject -> "1".equals(subject.getYear()) && "1".equals(subject.getSemester()))
-                .collect(Collectors.toList());
+        return new ArrayList<>(Arrays.asList(curriculum.getTermSubjects(1, 1)));
     }
 
     // Primary recommendation method for continuing students, maintaining explicit control
@@ -37,203 +124,797 @@ public class StudentEval {
         // Validate input parameters
         validateRecommendationInputs(academicHistory, currentYear, currentSemester);
 
-        // Calculate the next semester (for recommendations)
-        int nextYear = currentYear;
-        int nextSemester = currentSemester + 1;
-        if (nextSemester > 2) {
-            nextYear++;
-            nextSemester = 1;
+        AcademicRecord record = AcademicRecord.of(curriculum, academicHistory);
+        if (cache != null) {
+            return cache.get(curriculum, record, currentYear, currentSemester, solver.ordinal(),
+                    () -> recommend(record, currentYear, currentSemester));
+        }
+        return recommend(record, currentYear, currentSemester);
+    }
+
+    // Allocation-free form of getRecommendedSubjects for bulk callers that keep an AcademicRecord per
+    // student (AcademicRecord.of) and an output buffer per thread. Writes the recommended subjects to
+    // out and returns how many there are; only the first out.length are written if there are more.
+    // The cache is not consulted, and the OPTIMAL solver still allocates its candidate tables.
+    public int recommendInto(AcademicRecord record, int currentYear, int currentSemester, Subject[] out) {
+        if (record == null || out == null) {
+            throw new IllegalArgumentException("Record and output buffer cannot be null");
+        }
+        if (record.getWordCount() != curriculum.getWordCount()) {
+            throw new IllegalArgumentException("Record was built for a different curriculum");
+        }
+        validateTerm(currentYear, currentSemester);
+
+        if (solver == LoadSolver.OPTIMAL) {
+            List<Subject> optimal = recommendOptimal(record, currentYear, currentSemester);
+            if (optimal != null) {
+                for (int i = 0; i < Math.min(optimal.size(), out.length); i++) {
+                    out[i] = optimal.get(i);
+                }
+                return optimal.size();
+            }
+        }
+
+        RecommendationContext context = pooledContext(record, currentYear, currentSemester);
+        try {
+            runGreedy(context);
+            return context.copyRecommendations(out);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    // Capacity-aware recommendations: a subject is only added if a seat can be held for it in the
+    // ledger, so full subjects are skipped and the phases move on to the next eligible one. The
+    // student confirms the returned reservation or its seats go back to the ledger. Always uses the
+    // greedy phases and never the cache, since the result depends on the seats left.
+    public SeatReservation reserveRecommendedSubjects(String studentId, Map<String, Boolean> academicHistory,
+                                                      int currentYear, int currentSemester, SeatLedger ledger) {
+        validateRecommendationInputs(academicHistory, currentYear, currentSemester);
+        if (ledger == null) {
+            throw new IllegalArgumentException("Seat ledger cannot be null");
+        }
+
+        AcademicRecord record = AcademicRecord.of(curriculum, academicHistory);
+        SeatReservation reservation = ledger.open(studentId);
+        RecommendationContext context = pooledContext(record, currentYear, currentSemester);
+        context.seats = reservation;
+        try {
+            runGreedy(context);
+            reservation.finish();
+            return reservation;
+        } catch (RuntimeException | Error e) {
+            reservation.abandon();
+            throw e;
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    // Capacity-aware recommendations for a student of any of the school's programs
+    public SeatReservation reserveRecommendedSubjects(Student student, SeatLedger ledger) {
+        StudentEval eval = evalFor(student);
+        if (!student.isNew()) {
+            return eval.reserveRecommendedSubjects(student.getStudentId(), student.getAcademicHistory(),
+                    student.getCurrentYear(), student.getCurrentSemester(), ledger);
+        }
+        if (ledger == null) {
+            throw new IllegalArgumentException("Seat ledger cannot be null");
+        }
+
+        // Freshmen get every first-term subject that still has a seat
+        SeatReservation reservation = ledger.open(student.getStudentId());
+        try {
+            for (Subject subject : eval.curriculum.getTermSubjects(1, 1)) {
+                reservation.hold(subject);
+            }
+            reservation.finish();
+            return reservation;
+        } catch (RuntimeException | Error e) {
+            reservation.abandon();
+            throw e;
+        }
+    }
+
+    // Recommendations that can later be updated one grade at a time with updateRecommendation.
+    // Not served from the cache, since the cache does not keep the greedy trace.
+    public IncrementalRecommendation recommendIncrementally(Map<String, Boolean> academicHistory,
+                                                            int currentYear, int currentSemester) {
+        validateRecommendationInputs(academicHistory, currentYear, currentSemester);
+
+        return recommendTraced(AcademicRecord.of(curriculum, academicHistory), currentYear, currentSemester,
+                null, IncrementalRecommendation.RETAKES, 0, Collections.emptyList());
+    }
+
+    // Recommendations after one history change: passed is the new result for code, or null when the
+    // subject is removed from the history. Only the part of the greedy pipeline from the first
+    // candidate the change can affect (the subject itself, its direct dependents, or its slot among
+    // the retakes) is rerun; the result always equals a full recompute.
+    public IncrementalRecommendation updateRecommendation(IncrementalRecommendation previous,
+                                                          String code, Boolean passed) {
+        if (previous == null || previous.curriculum != curriculum) {
+            throw new IllegalArgumentException("Previous recommendation must come from this curriculum");
+        }
+        if (code == null) {
+            throw new IllegalArgumentException("Subject code cannot be null");
+        }
+
+        int ordinal = curriculum.ordinalOf(code);
+        if (ordinal < 0) {
+            return previous; // No subject can refer to a code the curriculum never mentions
+        }
+
+        AcademicRecord before = previous.getRecord();
+        AcademicRecord record = before.with(ordinal, passed);
+        boolean takenChanged = before.hasTaken(ordinal) != record.hasTaken(ordinal);
+        boolean passedChanged = before.hasPassed(ordinal) != record.hasPassed(ordinal);
+        if (!takenChanged && !passedChanged) {
+            return previous;
+        }
+
+        int year = previous.getCurrentYear();
+        int semester = previous.getCurrentSemester();
+        IncrementalRecommendation.Trace trace = previous.trace;
+        if (trace == null) {
+            return recommendTraced(record, year, semester, null, IncrementalRecommendation.RETAKES, 0,
+                    Collections.emptyList());
+        }
+
+        // Earliest step whose outcome could differ: the subject itself, or a subject needing it
+        int resumeStep = trace.size;
+        int resumePhase = IncrementalRecommendation.ANY + 1;
+        PrerequisiteGraph graph = curriculum.getPrerequisiteGraph();
+        int[] dependents = passedChanged ? graph.dependentsOf(ordinal) : graph.corequisiteDependentsOf(ordinal);
+        for (int step = 0; step < trace.size && resumePhase > IncrementalRecommendation.ANY; step++) {
+            int examined = trace.ordinals[step];
+            boolean affected = examined == ordinal;
+            for (int i = 0; i < dependents.length && !affected; i++) {
+                affected = examined == dependents[i];
+            }
+            if (affected) {
+                resumeStep = step;
+                resumePhase = trace.phaseOf(step);
+            }
         }
 
+        // A subject joining or leaving the failed list shifts the retakes from its sorted position
+        Subject subject = curriculum.subjectAt(ordinal);
+        if (subject != null && before.hasFailed(ordinal) != record.hasFailed(ordinal)) {
+            int position = 0;
+            for (int other = before.nextFailed(0); other >= 0; other = before.nextFailed(other + 1)) {
+                Subject retake = curriculum.subjectAt(other);
+                if (retake != null && other != ordinal && (retake.getUnits() < subject.getUnits()
+                        || retake.getUnits() == subject.getUnits() && other < ordinal)) {
+                    position++;
+                }
+            }
+            if (position <= resumeStep) {
+                resumeStep = position;
+                resumePhase = IncrementalRecommendation.RETAKES;
+            }
+        }
+
+        if (resumePhase > IncrementalRecommendation.ANY) {
+            // The greedy phases never looked at anything the change touches
+            return previous.withRecord(record);
+        }
+
+        // Keep the recommendations made before the resume point and rerun the phases from there
+        List<Subject> kept = previous.getSubjects()
+                .subList(0, trace.addedBefore(resumeStep, previous.getSubjects().size()));
+        int start = trace.phaseStarts[resumePhase] >= 0 ? trace.phaseStarts[resumePhase] : resumeStep;
+        return recommendTraced(record, year, semester, trace.prefix(resumeStep, resumePhase),
+                resumePhase, resumeStep - start, kept);
+    }
+
+    // Greedy recommendations from a resume point, given the trace and subjects kept from before it
+    private IncrementalRecommendation recommendTraced(AcademicRecord record, int currentYear, int currentSemester,
+                                                      IncrementalRecommendation.Trace trace, int phase, int index,
+                                                      List<Subject> kept) {
+        if (solver == LoadSolver.OPTIMAL) {
+            // The knapsack has no phase order to resume, so optimal results are always recomputed
+            return new IncrementalRecommendation(curriculum, record, currentYear, currentSemester,
+                    recommend(record, currentYear, currentSemester), null);
+        }
+
+        RecommendationContext context = newContext(record, currentYear, currentSemester);
+        context.trace = trace != null ? trace : new IncrementalRecommendation.Trace();
+        for (Subject subject : kept) {
+            addSubjectToRecommendations(context, subject);
+        }
+        runGreedyFrom(context, phase, index);
+        return new IncrementalRecommendation(curriculum, record, currentYear, currentSemester,
+                context.recommendationList(), context.trace);
+    }
+
+    // The greedy phases starting at the index-th candidate of the given phase, with every examined
+    // candidate recorded in the context's trace
+    private void runGreedyFrom(RecommendationContext context, int phase, int index) {
+        IncrementalRecommendation.Trace trace = context.trace;
+        int[] starts = trace.phaseStarts;
+
+        if (phase <= IncrementalRecommendation.RETAKES) {
+            starts[IncrementalRecommendation.RETAKES] = trace.size - index;
+            addRetakeSubjects(context, index);
+        }
+        if (phase <= IncrementalRecommendation.NEXT_SEMESTER) {
+            int from = phase == IncrementalRecommendation.NEXT_SEMESTER ? index : 0;
+            starts[IncrementalRecommendation.NEXT_SEMESTER] = trace.size - from;
+            addNextSemesterCoreSubjects(context, from);
+        }
+        if (phase <= IncrementalRecommendation.ADVANCED) {
+            // Resuming inside a phase means it was already entered
+            int from = phase == IncrementalRecommendation.ADVANCED ? index : 0;
+            if (from > 0 || context.totalUnits < MIN_UNITS) {
+                starts[IncrementalRecommendation.ADVANCED] = trace.size - from;
+                addAdvancedEligibleSubjects(context, from);
+            }
+        }
+        int from = phase == IncrementalRecommendation.ANY ? index : 0;
+        if (from > 0 || context.totalUnits < MIN_UNITS) {
+            starts[IncrementalRecommendation.ANY] = trace.size - from;
+            addAnyEligibleSubjects(context, from);
+        }
+    }
+
+    private List<Subject> recommend(AcademicRecord record, int currentYear, int currentSemester) {
+        if (solver == LoadSolver.OPTIMAL) {
+            List<Subject> optimal = recommendOptimal(record, currentYear, currentSemester);
+            if (optimal != null) {
+                return optimal;
+            }
+        }
+        return recommendGreedy(record, currentYear, currentSemester);
+    }
+
+    // Fresh context positioned at the term after the current one
+    private RecommendationContext newContext(AcademicRecord record, int currentYear, int currentSemester) {
+        return newContext(new RecommendationContext(), record, currentYear, currentSemester);
+    }
+
+    private RecommendationContext newContext(RecommendationContext context, AcademicRecord record,
+                                             int currentYear, int currentSemester) {
+        // Calculate the next term (for recommendations); a summer term only if the curriculum has one
+        int nextTerm = curriculum.nextTerm(Term.of(currentYear, currentSemester));
+
         // Cap at maximum curriculum year/semester
-        if (nextYear > 4) {
-            nextYear = 4;
-            nextSemester = 2;
+        if (Term.year(nextTerm) > 4) {
+            nextTerm = LAST_TERM;
+        }
+
+        return context.reset(curriculum, record, currentYear, currentSemester, nextTerm);
+    }
+
+    // The calling thread's reusable context, or a fresh one if that is already in use; hand it back
+    // with releaseContext
+    private RecommendationContext pooledContext(AcademicRecord record, int currentYear, int currentSemester) {
+        RecommendationContext context = CONTEXTS.get();
+        if (context.inUse) {
+            context = new RecommendationContext();
         }
+        context.inUse = true;
+        return newContext(context, record, currentYear, currentSemester);
+    }
 
-        // Initialize recommendation context
-        RecommendationContext context = new RecommendationContext(
-                academicHistory, currentYear, currentSemester, nextYear, nextSemester);
+    private static void releaseContext(RecommendationContext context) {
+        Arrays.fill(context.recommendations, 0, context.recommendationCount, null);
+        context.recommendationCount = 0;
+        context.record = null;
+        context.seats = null;
+        context.inUse = false;
+    }
+
+    private List<Subject> recommendGreedy(AcademicRecord record, int currentYear, int currentSemester) {
+        RecommendationContext context = pooledContext(record, currentYear, currentSemester);
+        try {
+            runGreedy(context);
+            return context.recommendationList();
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    private void runGreedy(RecommendationContext context) {
+        RecommendationMetrics metrics = RecommendationMetrics.active();
+        if (metrics != null) {
+            runInstrumented(context, metrics);
+            return;
+        }
 
         // Step 1: Add failed subjects that need to be retaken (highest priority)
-        addRetakeSubjects(context);
+        addRetakeSubjects(context, 0);
 
         // Step 2: Add core subjects for the next semester
-        addNextSemesterCoreSubjects(context);
+        addNextSemesterCoreSubjects(context, 0);
 
         // Step 3: If needed, add subjects from future semesters that have prerequisites satisfied
         if (context.totalUnits < MIN_UNITS) {
-            addAdvancedEligibleSubjects(context);
+            addAdvancedEligibleSubjects(context, 0);
         }
 
         // Step 4: If still below minimum, look for any eligible subjects, even from previous semesters
         if (context.totalUnits < MIN_UNITS) {
-            addAnyEligibleSubjects(context);
+            addAnyEligibleSubjects(context, 0);
+        }
+    }
+
+    // The same phases as runGreedy, timed and counted
+    private void runInstrumented(RecommendationContext context, RecommendationMetrics metrics) {
+        metrics.recordRecommendation();
+        long time = System.nanoTime();
+
+        addRetakeSubjects(context, 0);
+        time = recordPhase(metrics.retakes, context, time);
+
+        addNextSemesterCoreSubjects(context, 0);
+        time = recordPhase(metrics.nextSemester, context, time);
+
+        if (context.totalUnits < MIN_UNITS) {
+            addAdvancedEligibleSubjects(context, 0);
+            time = recordPhase(metrics.advanced, context, time);
+        }
+
+        if (context.totalUnits < MIN_UNITS) {
+            addAnyEligibleSubjects(context, 0);
+            recordPhase(metrics.any, context, time);
         }
+    }
 
-        return context.recommendations;
+    private long recordPhase(PhaseMetrics phase, RecommendationContext context, long startNanos) {
+        long now = phase.record(startNanos, context.examined - context.examinedBefore,
+                context.recommendationCount - context.addedBefore);
+        context.examinedBefore = context.examined;
+        context.addedBefore = context.recommendationCount;
+        return now;
+    }
+
+    // Choose the subject set by exact search over unit totals: as many retakes and on-track subjects
+    // as fit, then the look-ahead/backlog subjects that bring the load closest to IDEAL_UNITS.
+    // Candidates follow the greedy phase order and eligibility rules, except that failed subjects
+    // are offered again as retakes (the greedy phases count them as taken). Returns null when the
+    // time budget runs out, or the best load breaks a corequisite, so the caller can use the greedy
+    // result instead.
+    private List<Subject> recommendOptimal(AcademicRecord record, int currentYear, int currentSemester) {
+        long deadline = System.nanoTime() + solverBudgetNanos;
+
+        // Candidates are collected through a scratch context so duplicates and elective slots are
+        // handled exactly as in the greedy phases
+        RecommendationContext candidates = newContext(record, currentYear, currentSemester);
+        List<Long> scores = new ArrayList<>();
+
+        for (int ordinal = record.nextFailed(0); ordinal >= 0; ordinal = record.nextFailed(ordinal + 1)) {
+            Subject subject = curriculum.subjectAt(ordinal);
+            if (subject == null) {
+                continue;
+            }
+            if (curriculum.electiveId(subject) >= 0) {
+                addCandidate(candidates, subject, RETAKE_SCORE, scores);
+            } else if (!candidates.isRecommended(subject) && meetsRule(subject, candidates)) {
+                addSubjectToRecommendations(candidates, subject);
+                scores.add(RETAKE_SCORE);
+            }
+        }
+
+        for (Subject subject : curriculum.termSubjectsByCode(candidates.nextYear, candidates.nextSemester)) {
+            if (!candidates.hasTaken(subject) && hasPassedAllPrerequisites(subject, candidates)) {
+                addCandidate(candidates, subject, ON_TRACK_SCORE, scores);
+            }
+        }
+
+        // Same look-ahead window as addAdvancedEligibleSubjects, then everything else eligible
+        Subject[] ordered = curriculum.orderedCoreSubjects();
+        for (int i = lookAheadStart(candidates), end = lookAheadEnd(candidates); i < end; i++) {
+            addCandidate(candidates, ordered[i], LOOK_AHEAD_SCORE, scores);
+        }
+        for (Subject subject : ordered) {
+            addCandidate(candidates, subject, BACKLOG_SCORE, scores);
+        }
+
+        Subject[] subjects = candidates.recommendations;
+        int[] units = new int[candidates.recommendationCount];
+        long[] weights = new long[units.length];
+        for (int i = 0; i < units.length; i++) {
+            units[i] = subjects[i].getUnits();
+            weights[i] = scores.get(i);
+        }
+
+        UnitKnapsack knapsack = UnitKnapsack.solve(units, weights, MAX_UNITS, deadline);
+        if (knapsack == null) {
+            return null;
+        }
+
+        int bestTotal = 0;
+        for (int total = 1; total <= MAX_UNITS; total++) {
+            if (knapsack.bestScore(total) != UnitKnapsack.UNREACHABLE && isBetterLoad(knapsack, total, bestTotal)) {
+                bestTotal = total;
+            }
+        }
+
+        boolean[] chosen = knapsack.select(bestTotal);
+        List<Subject> recommendations = new ArrayList<>();
+        long[] chosenBits = new long[curriculum.getWordCount()];
+        for (int i = 0; i < chosen.length; i++) {
+            if (chosen[i]) {
+                recommendations.add(subjects[i]);
+                chosenBits[subjects[i].getOrdinal() >>> 6] |= 1L << subjects[i].getOrdinal();
+            }
+        }
+
+        // Candidates could lean on a corequisite that was also only a candidate; if the load left
+        // that corequisite out, fall back to the greedy result
+        for (Subject subject : recommendations) {
+            PrerequisiteMask mask = curriculum.prerequisiteMask(subject);
+            if (mask.hasCorequisites() && curriculum.electiveId(subject) < 0
+                    && !record.satisfies(mask, chosenBits, candidates.nextYear)) {
+                return null;
+            }
+        }
+        return recommendations;
+    }
+
+    // Add an eligible subject to the solver's candidates, ignoring the unit limit
+    private void addCandidate(RecommendationContext candidates, Subject subject, long score, List<Long> scores) {
+        if (isEligible(candidates, subject)) {
+            addSubjectToRecommendations(candidates, subject);
+            scores.add(score);
+        }
+    }
+
+    // Order loads by required subjects, then reaching MIN_UNITS, then distance to IDEAL_UNITS,
+    // then the look-ahead and backlog subjects included
+    private boolean isBetterLoad(UnitKnapsack knapsack, int total, int bestTotal) {
+        long score = knapsack.bestScore(total);
+        long best = knapsack.bestScore(bestTotal);
+        if ((score >>> REQUIRED_SCORE_SHIFT) != (best >>> REQUIRED_SCORE_SHIFT)) {
+            return (score >>> REQUIRED_SCORE_SHIFT) > (best >>> REQUIRED_SCORE_SHIFT);
+        }
+        if ((total >= MIN_UNITS) != (bestTotal >= MIN_UNITS)) {
+            return total >= MIN_UNITS;
+        }
+        int distance = Math.abs(total - IDEAL_UNITS);
+        int bestDistance = Math.abs(bestTotal - IDEAL_UNITS);
+        if (distance != bestDistance) {
+            return distance < bestDistance;
+        }
+        return score > best;
+    }
+
+    // Full term-by-term plan to graduation with the fewest remaining terms, starting the term
+    // after the current one and keeping every term within MAX_UNITS
+    public GraduationPlan planGraduation(Map<String, Boolean> academicHistory, int currentYear, int currentSemester) {
+        validateRecommendationInputs(academicHistory, currentYear, currentSemester);
+
+        int next = Term.nextSemester(Term.of(currentYear, currentSemester));
+        return new GraduationPlanner(curriculum, MAX_UNITS)
+                .plan(AcademicRecord.of(curriculum, academicHistory), Term.year(next), Term.semester(next));
+    }
+
+    // Graduation plan for a student of any of the school's programs
+    public GraduationPlan planGraduation(Student student) {
+        StudentEval eval = evalFor(student);
+        if (student.isNew()) {
+            // Nothing taken yet: plan from the first term
+            return new GraduationPlanner(eval.curriculum, MAX_UNITS)
+                    .plan(AcademicRecord.of(eval.curriculum, Collections.emptyMap()), 1, 1);
+        }
+        return eval.planGraduation(student.getAcademicHistory(), student.getCurrentYear(), student.getCurrentSemester());
+    }
+
+    // Recommendations for a single student based on their program, recorded history and current term
+    public List<Subject> getRecommendedSubjects(Student student) {
+        StudentEval eval = evalFor(student);
+        if (student.isNew()) {
+            return eval.getRecommendedSubjects();
+        }
+        return eval.getRecommendedSubjects(student.getAcademicHistory(),
+                student.getCurrentYear(), student.getCurrentSemester());
+    }
+
+    // Evaluator for the student's program, sharing this one's cache
+    private StudentEval evalFor(Student student) {
+        if (school == null || student.getProgramCode() == null) {
+            return this;
+        }
+
+        Program program = school.getProgram(student.getProgramCode());
+        if (program == null) {
+            throw new IllegalArgumentException("Unknown program: " + student.getProgramCode());
+        }
+        return evalFor(program);
+    }
+
+    // Evaluator for one of the school's programs, sharing this one's cache: the pinned one if there
+    // is one
+    StudentEval evalFor(Program program) {
+        StudentEval eval = pinned == null ? null : pinned.get(program);
+        if (eval != null) {
+            return eval.curriculum == curriculum ? this : eval;
+        }
+
+        // Programs added after pinning, and unpinned evaluators, check the registry each time
+        CurriculumIndex programCurriculum = program.getCurriculumIndex();
+        return programCurriculum == curriculum ? this
+                : new StudentEval(programCurriculum, cache, school, solver, solverBudgetNanos, null);
+    }
+
+    // Batch recommendations using every available core
+    public List<List<Subject>> getRecommendedSubjects(Collection<Student> students) {
+        return getRecommendedSubjects(students, Runtime.getRuntime().availableProcessors());
+    }
+
+    public List<List<Subject>> getRecommendedSubjects(Stream<Student> students, int parallelism) {
+        return getRecommendedSubjects(students.collect(Collectors.toList()), parallelism);
+    }
+
+    // Batch recommendations computed in parallel; the result at index i belongs to the i-th student
+    public List<List<Subject>> getRecommendedSubjects(Collection<Student> students, int parallelism) {
+        if (students == null) {
+            throw new IllegalArgumentException("Students cannot be null");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        return pinCurricula().recommendBatch(students.toArray(new Student[0]), parallelism);
+    }
+
+    private List<List<Subject>> recommendBatch(Student[] batch, int parallelism) {
+        // Filled in place by index; tasks never change its size, and invoke publishes the writes
+        List<List<Subject>> results = new ArrayList<>(Collections.nCopies(batch.length, null));
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new BatchTask(batch, results, 0, batch.length));
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    // Splits a batch of students in halves until small enough to evaluate directly
+    private class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Student[] students;
+        private final List<List<Subject>> results;
+        private final int from;
+        private final int to;
+
+        BatchTask(Student[] students, List<List<Subject>> results, int from, int to) {
+            this.students = students;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results.set(i, getRecommendedSubjects(students[i]));
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new BatchTask(students, results, from, mid),
+                    new BatchTask(students, results, mid, to));
+        }
     }
 
     private void validateRecommendationInputs(Map<String, Boolean> academicHistory, int currentYear, int currentSemester) {
         if (academicHistory == null) {
             throw new IllegalArgumentException("Academic history cannot be null");
         }
+        validateTerm(currentYear, currentSemester);
+    }
 
+    private static void validateTerm(int currentYear, int currentSemester) {
         if (currentYear < 1 || currentYear > 4) {
             throw new IllegalArgumentException("Current year must be between 1 and 4");
         }
 
-        if (currentSemester < 1 || currentSemester > 2) {
-            throw new IllegalArgumentException("Current semester must be either 1 or 2");
+        if (currentSemester < 1 || currentSemester > Term.SUMMER) {
+            throw new IllegalArgumentException("Current semester must be 1, 2 or 3 (summer)");
         }
     }
 
-    // Context class to maintain state during recommendation process
-    private class RecommendationContext {
-        final Map<String, Boolean> academicHistory;
-        final Set<String> passedSubjects;
-        final Set<String> takenSubjects;
-        final List<Subject> recommendations;
-        final int currentYear;
-        final int currentSemester;
-        final int nextYear;
-        final int nextSemester;
+    // Context class to maintain state during recommendation process. Arrays are reused across
+    // calls by reset, so a pooled context allocates nothing once it has grown to the curriculum.
+    private static final class RecommendationContext {
+        AcademicRecord record;
+        long[] recommended = new long[0]; // Ordinals already in recommendations
+        int[] recommendedElectives = new int[0]; // Recommended copies per elective id
+        Subject[] recommendations = new Subject[16];
+        int recommendationCount;
+        Subject[] retakes = new Subject[16]; // Scratch list for addRetakeSubjects
+        int currentYear;
+        int currentSemester;
+        int nextTerm; // Packed, see Term
+        int nextYear;
+        int nextSemester;
         int totalUnits;
+        int examined; // Candidates looked at by the phases, for RecommendationMetrics
+        int examinedBefore;
+        int addedBefore;
+        IncrementalRecommendation.Trace trace; // Set when the candidates examined must be recorded
+        SeatReservation seats; // Set when every added subject needs a seat
+        boolean inUse; // Pooled context currently lent out
+
+        RecommendationContext reset(CurriculumIndex curriculum, AcademicRecord record,
+                                    int currentYear, int currentSemester, int nextTerm) {
+            int words = curriculum.getWordCount();
+            if (recommended.length < words) {
+                recommended = new long[words];
+            } else {
+                Arrays.fill(recommended, 0, words, 0L);
+            }
+            int electives = curriculum.getElectiveCount();
+            if (recommendedElectives.length < electives) {
+                recommendedElectives = new int[electives];
+            } else {
+                Arrays.fill(recommendedElectives, 0, electives, 0);
+            }
+            Arrays.fill(recommendations, 0, recommendationCount, null);
 
-        RecommendationContext(Map<String, Boolean> academicHistory,
-                              int currentYear, int currentSemester,
-                              int nextYear, int nextSemester) {
-            this.academicHistory = new HashMap<>(academicHistory);
-            this.passedSubjects = academicHistory.entrySet().stream()
-                    .filter(Map.Entry::getValue)
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toSet());
-            this.takenSubjects = new HashSet<>(academicHistory.keySet());
-            this.recommendations = new ArrayList<>();
+            this.record = record;
+            this.recommendationCount = 0;
             this.currentYear = currentYear;
             this.currentSemester = currentSemester;
-            this.nextYear = nextYear;
-            this.nextSemester = nextSemester;
+            this.nextTerm = nextTerm;
+            this.nextYear = Term.year(nextTerm);
+            this.nextSemester = Term.semester(nextTerm);
             this.totalUnits = 0;
+            this.examined = 0;
+            this.examinedBefore = 0;
+            this.addedBefore = 0;
+            this.trace = null;
+            this.seats = null;
+            return this;
+        }
+
+        boolean hasTaken(Subject subject) {
+            return record.hasTaken(subject.getOrdinal());
+        }
+
+        boolean isRecommended(Subject subject) {
+            int ordinal = subject.getOrdinal();
+            return (recommended[ordinal >>> 6] & (1L << ordinal)) != 0;
+        }
+
+        void examine(Subject subject) {
+            examined++;
+            if (trace != null) {
+                trace.step(subject.getOrdinal(), recommendationCount);
+            }
+        }
+
+        void add(Subject subject) {
+            if (recommendationCount == recommendations.length) {
+                recommendations = Arrays.copyOf(recommendations, recommendationCount * 2);
+            }
+            recommendations[recommendationCount++] = subject;
+        }
+
+        List<Subject> recommendationList() {
+            List<Subject> list = new ArrayList<>(recommendationCount);
+            for (int i = 0; i < recommendationCount; i++) {
+                list.add(recommendations[i]);
+            }
+            return list;
+        }
+
+        // Copy as much of the result as fits; returns the full count
+        int copyRecommendations(Subject[] out) {
+            System.arraycopy(recommendations, 0, out, 0, Math.min(recommendationCount, out.length));
+            return recommendationCount;
         }
     }
 
-    // Add failed subjects first as they're highest priority for retaking
-    private void addRetakeSubjects(RecommendationContext context) {
-        List<Subject> retakes = context.academicHistory.entrySet().stream()
-                .filter(entry -> !entry.getValue()) // Failed subjects
-                .map(entry -> findSubjectByCode(entry.getKey()))
-                .filter(Objects::nonNull)
-                .sorted(Comparator.comparing(Subject::getUnits)) // Start with smaller subjects
-                .collect(Collectors.toList());
+    // Add failed subjects first as they're highest priority for retaking; from skips that many retakes
+    private void addRetakeSubjects(RecommendationContext context, int from) {
+        // Failed subjects in curriculum order
+        Subject[] retakes = context.retakes;
+        int count = 0;
+        AcademicRecord record = context.record;
+        for (int ordinal = record.nextFailed(0); ordinal >= 0; ordinal = record.nextFailed(ordinal + 1)) {
+            Subject subject = curriculum.subjectAt(ordinal);
+            if (subject != null) {
+                if (count == retakes.length) {
+                    retakes = context.retakes = Arrays.copyOf(retakes, count * 2);
+                }
+                retakes[count++] = subject;
+            }
+        }
 
-        for (Subject subject : retakes) {
-            if (canAddSubject(context, subject)) {
-                addSubjectToRecommendations(context, subject);
+        // Start with smaller subjects; a stable insertion sort keeps curriculum order within a unit count
+        for (int i = 1; i < count; i++) {
+            Subject subject = retakes[i];
+            int j = i;
+            while (j > 0 && retakes[j - 1].getUnits() > subject.getUnits()) {
+                retakes[j] = retakes[j - 1];
+                j--;
             }
+            retakes[j] = subject;
+        }
+
+        for (int i = from; i < count; i++) {
+            Subject subject = retakes[i];
+            retakes[i] = null; // Do not keep subjects reachable from the pooled context
+            context.examine(subject);
+            tryAddSubject(context, subject);
         }
     }
 
     // Add core subjects for the next semester based on explicit year/semester
-    private void addNextSemesterCoreSubjects(RecommendationContext context) {
-        // Get all subjects for the next semester (including electives)
-        List<Subject> nextSemesterSubjects = allSubjects.stream()
-                .filter(subject -> String.valueOf(context.nextYear).equals(subject.getYear()) &&
-                        String.valueOf(context.nextSemester).equals(subject.getSemester()))
-                .filter(subject -> !context.takenSubjects.contains(subject.getCode()))
-                .filter(subject -> hasPassedAllPrerequisites(subject, context.academicHistory))
-                .sorted(Comparator.comparing(Subject::getCode)) // Sort by code for consistency
-                .collect(Collectors.toList());
-
-        // Add as many subjects as possible within unit limits
-        for (Subject subject : nextSemesterSubjects) {
-            if (canAddSubject(context, subject)) {
-                addSubjectToRecommendations(context, subject);
+    private void addNextSemesterCoreSubjects(RecommendationContext context, int from) {
+        // All subjects for the next semester (including electives), already sorted by code
+        Subject[] candidates = curriculum.termSubjectsByCode(context.nextYear, context.nextSemester);
+        for (int i = from; i < candidates.length; i++) {
+            Subject subject = candidates[i];
+            context.examine(subject);
+            if (context.hasTaken(subject) || !hasPassedAllPrerequisites(subject, context)) {
+                continue;
             }
+
+            // Add as many subjects as possible within unit limits
+            tryAddSubject(context, subject);
         }
     }
 
     // Add subjects from future semesters if prerequisites are satisfied
-    private void addAdvancedEligibleSubjects(RecommendationContext context) {
+    private void addAdvancedEligibleSubjects(RecommendationContext context, int from) {
         // Skip if already at max units
-        if (context.totalUnits >= MAX_UNITS) {
+        if (from == 0 && context.totalUnits >= MAX_UNITS) {
             return;
         }
 
-        // Define the maximum future semester to look ahead (limit to 1 year ahead)
-        int maxLookAheadYear = Math.min(4, context.nextYear + 1);
-
-        // Find all future subjects the student is eligible to take
-        List<Subject> eligibleSubjects = allSubjects.stream()
-                .filter(subject -> !context.takenSubjects.contains(subject.getCode()))
-                .filter(subject -> !context.recommendations.contains(subject))
-                .filter(subject -> !isElective(subject))
-                .filter(subject -> hasPassedAllPrerequisites(subject, context.academicHistory))
-                .filter(subject -> {
-                    int subjYear = Integer.parseInt(subject.getYear());
-                    int subjSem = Integer.parseInt(subject.getSemester());
-
-                    // Check if subject is in a future semester but within our look-ahead limit
-                    if (subjYear > context.nextYear) {
-                        return subjYear <= maxLookAheadYear;
-                    } else if (subjYear == context.nextYear) {
-                        return subjSem > context.nextSemester;
-                    }
-                    return false;
-                })
-                .collect(Collectors.toList());
-
-        // Sort subjects to prioritize closer semesters first
-        eligibleSubjects.sort(Comparator
-                .comparing(Subject::getYear)
-                .thenComparing(Subject::getSemester)
-                .thenComparing(Subject::getCode));
+        // Future terms in order, so closer terms are prioritized first
+        addEligibleUntilMinimum(context, curriculum.orderedCoreSubjects(), lookAheadStart(context) + from,
+                lookAheadEnd(context));
+    }
 
-        // Add subjects until we hit minimum units
-        for (Subject subject : eligibleSubjects) {
-            if (canAddSubject(context, subject)) {
-                addSubjectToRecommendations(context, subject);
+    // The look-ahead window, every term after the next one up to the end of the following year
+    // (limit to 1 year ahead), as a range of orderedCoreSubjects
+    private int lookAheadStart(RecommendationContext context) {
+        return curriculum.coreSubjectsEnd(context.nextTerm);
+    }
 
-                // Break if we've reached minimum units
-                if (context.totalUnits >= MIN_UNITS) {
-                    break;
-                }
-            }
-        }
+    private int lookAheadEnd(RecommendationContext context) {
+        int maxLookAheadYear = Math.min(4, context.nextYear + 1);
+        return Math.max(lookAheadStart(context), curriculum.coreSubjectsEnd(Term.of(maxLookAheadYear, Term.SUMMER)));
     }
 
     // Add any eligible subjects, even from previous semesters if needed
-    private void addAnyEligibleSubjects(RecommendationContext context) {
+    private void addAnyEligibleSubjects(RecommendationContext context, int from) {
         // Skip if already at min units
-        if (context.totalUnits >= MIN_UNITS) {
+        if (from == 0 && context.totalUnits >= MIN_UNITS) {
             return;
         }
 
-        // Find any subjects the student is eligible to take but hasn't taken yet
-        List<Subject> eligibleSubjects = allSubjects.stream()
-                .filter(subject -> !context.takenSubjects.contains(subject.getCode()))
-                .filter(subject -> !context.recommendations.contains(subject))
-                .filter(subject -> !isElective(subject))
-                .filter(subject -> hasPassedAllPrerequisites(subject, context.academicHistory))
-                .collect(Collectors.toList());
-
-        // Sort prioritizing lower year/semester first
-        eligibleSubjects.sort(Comparator
-                .comparing(Subject::getYear)
-                .thenComparing(Subject::getSemester)
-                .thenComparing(Subject::getCode));
+        // Any subject the student hasn't taken yet, prioritizing lower year/semester first
+        Subject[] ordered = curriculum.orderedCoreSubjects();
+        addEligibleUntilMinimum(context, ordered, from, ordered.length);
+    }
 
-        // Add subjects until we hit minimum units
-        for (Subject subject : eligibleSubjects) {
-            if (canAddSubject(context, subject)) {
-                addSubjectToRecommendations(context, subject);
+    // Add eligible subjects in the given order, from from up to end, until we hit minimum units
+    private boolean addEligibleUntilMinimum(RecommendationContext context, Subject[] candidates, int from, int end) {
+        for (int i = from; i < end; i++) {
+            Subject subject = candidates[i];
+            context.examine(subject);
+            if (context.hasTaken(subject) || context.isRecommended(subject) ||
+                    !hasPassedAllPrerequisites(subject, context)) {
+                continue;
+            }
 
-                // Break if we've reached minimum units
+            if (tryAddSubject(context, subject)) {
+                // Stop once we've reached minimum units
                 if (context.totalUnits >= MIN_UNITS) {
-                    break;
+                    return true;
                 }
             }
         }
+        return false;
     }
 
     // Add electives to reach optimal unit load
@@ -242,17 +923,9 @@ public class StudentEval {
             return; // Already at ideal units
         }
 
-        // Find all electives for the next semester first
-        List<Subject> nextSemesterElectives = allSubjects.stream()
-                .filter(subject -> isElective(subject))
-                .filter(subject -> String.valueOf(context.nextYear).equals(subject.getYear()))
-                .filter(subject -> String.valueOf(context.nextSemester).equals(subject.getSemester()))
-                .collect(Collectors.toList());
-
         // Add next semester electives first
-        for (Subject elective : nextSemesterElectives) {
-            if (canAddSubject(context, elective)) {
-                addSubjectToRecommendations(context, elective);
+        for (Subject elective : curriculum.termElectives(context.nextYear, context.nextSemester)) {
+            if (tryAddSubject(context, elective)) {
                 if (context.totalUnits >= IDEAL_UNITS) {
                     return;
                 }
@@ -261,20 +934,16 @@ public class StudentEval {
 
         // If still below ideal, look for electives from other semesters
         if (context.totalUnits < IDEAL_UNITS) {
-            List<Subject> otherElectives = allSubjects.stream()
-                    .filter(subject -> isElective(subject))
-                    .filter(subject ->
-                            !String.valueOf(context.nextYear).equals(subject.getYear()) ||
-                                    !String.valueOf(context.nextSemester).equals(subject.getSemester()))
-                    .filter(subject -> Integer.parseInt(subject.getYear()) <= context.nextYear)
-                    .sorted(Comparator.comparing(Subject::getYear).thenComparing(Subject::getSemester))
-                    .collect(Collectors.toList());
-
-            for (Subject elective : otherElectives) {
-                if (canAddSubject(context, elective)) {
-                    addSubjectToRecommendations(context, elective);
-                    if (context.totalUnits >= IDEAL_UNITS) {
-                        return;
+            for (int term = FIRST_TERM; Term.year(term) <= context.nextYear; term = Term.next(term)) {
+                if (term == context.nextTerm) {
+                    continue;
+                }
+
+                for (Subject elective : curriculum.termElectives(Term.year(term), Term.semester(term))) {
+                    if (tryAddSubject(context, elective)) {
+                        if (context.totalUnits >= IDEAL_UNITS) {
+                            return;
+                        }
                     }
                 }
             }
@@ -283,131 +952,146 @@ public class StudentEval {
 
     // Helper method to check if a subject is an elective
     private boolean isElective(Subject subject) {
-        return subject.getCode().equals("it-el") || subject.getCode().equals("it-fre");
+        return CurriculumIndex.isElective(subject);
+    }
+
+    // Add a subject if it can be added and, when seats are being held, a seat is free for it.
+    // A subject waiting on corequisites comes in together with them or not at all.
+    private boolean tryAddSubject(RecommendationContext context, Subject subject) {
+        if (!canAddSubject(context, subject)) {
+            return false;
+        }
+        Subject[] group = curriculum.electiveId(subject) < 0 && !meetsRule(subject, context)
+                ? corequisiteGroup(context, subject) : null;
+        if (group != null) {
+            return tryAddGroup(context, group);
+        }
+        if (context.seats != null && !context.seats.hold(subject)) {
+            return false;
+        }
+        addSubjectToRecommendations(context, subject);
+        return true;
+    }
+
+    private boolean tryAddGroup(RecommendationContext context, Subject[] group) {
+        int units = 0;
+        for (Subject member : group) {
+            units += member.getUnits();
+        }
+        if (context.totalUnits + units > MAX_UNITS) {
+            return false;
+        }
+        if (context.seats != null) {
+            for (int i = 0; i < group.length; i++) {
+                if (!context.seats.hold(group[i])) {
+                    context.seats.unhold(i);
+                    return false;
+                }
+            }
+        }
+        for (Subject member : group) {
+            addSubjectToRecommendations(context, member);
+        }
+        return true;
     }
 
     // Check if a subject can be added to recommendations
     private boolean canAddSubject(RecommendationContext context, Subject subject) {
-        if (isElective(subject)) {
+        return isEligible(context, subject) && context.totalUnits + subject.getUnits() <= MAX_UNITS;
+    }
+
+    // Check if a subject could be recommended, unit limit aside
+    private boolean isEligible(RecommendationContext context, Subject subject) {
+        int electiveId = curriculum.electiveId(subject);
+        if (electiveId >= 0) {
             // For electives, count how many of this code are already recommended
-            long recommendedCount = context.recommendations.stream()
-                    .filter(s -> s.getCode().equals(subject.getCode()))
-                    .count();
+            int recommendedCount = context.recommendedElectives[electiveId];
 
             // Count how many of this code were already taken
-            long takenCount = 0;
-            for (String code : context.takenSubjects) {
-                if (code.equals(subject.getCode())) {
-                    takenCount++;
-                }
-            }
+            int takenCount = context.hasTaken(subject) ? 1 : 0;
 
-            // Count total instances of this elective in the curriculum for the current semester
-            long totalAvailable = allSubjects.stream()
-                    .filter(s -> s.getCode().equals(subject.getCode()))
-                    .filter(s -> String.valueOf(context.nextYear).equals(s.getYear()))
-                    .filter(s -> String.valueOf(context.nextSemester).equals(s.getSemester()))
-                    .count();
+            // Slots of this elective offered in the next semester, precomputed at load
+            int totalAvailable = curriculum.electiveCapacity(electiveId, context.nextYear, context.nextSemester);
 
             // Check if more electives of this type can be taken
-            return recommendedCount + takenCount < totalAvailable &&
-                    context.totalUnits + subject.getUnits() <= MAX_UNITS;
+            return recommendedCount + takenCount < totalAvailable;
         } else {
             // For non-electives, use the original logic
-            return !context.recommendations.contains(subject) &&
-                    !context.takenSubjects.contains(subject.getCode()) &&
-                    hasPassedAllPrerequisites(subject, context.academicHistory) &&
-                    context.totalUnits + subject.getUnits() <= MAX_UNITS;
+            return !context.isRecommended(subject) &&
+                    !context.hasTaken(subject) &&
+                    hasPassedAllPrerequisites(subject, context);
         }
     }
 
     // Add a subject to recommendations
     private void addSubjectToRecommendations(RecommendationContext context, Subject subject) {
-        context.recommendations.add(subject);
+        int ordinal = subject.getOrdinal();
+        context.add(subject);
+        context.recommended[ordinal >>> 6] |= 1L << ordinal;
+        int electiveId = curriculum.electiveId(subject);
+        if (electiveId >= 0) {
+            context.recommendedElectives[electiveId]++;
+        }
         context.totalUnits += subject.getUnits();
     }
 
-    // Check if all prerequisites for a subject have been passed
-    private boolean hasPassedAllPrerequisites(Subject subject, Map<String, Boolean> academicHistory) {
-        if (subject.getPrerequisites().isEmpty()) {
-            return true; // No prerequisites
-        }
-
-        return subject.getPrerequisites().stream()
-                .allMatch(prereq -> academicHistory.getOrDefault(prereq, false));
+    // Check a subject's compiled prerequisite rule: prerequisites passed, year standing reached in
+    // the term being planned, and corequisites passed, already recommended, or able to come along
+    private boolean hasPassedAllPrerequisites(Subject subject, RecommendationContext context) {
+        return meetsRule(subject, context)
+                || curriculum.prerequisiteMask(subject).hasCorequisites() && corequisiteGroup(context, subject) != null;
     }
 
-    // Find a subject by its code
-    private Subject findSubjectByCode(String code) {
-        return allSubjects.stream()
-                .filter(subject -> subject.getCode().equals(code))
-                .findFirst()
-                .orElse(null);
+    // The rule as compiled, with corequisites counted only when passed or already recommended
+    private boolean meetsRule(Subject subject, RecommendationContext context) {
+        return context.record.satisfies(curriculum.prerequisiteMask(subject), context.recommended, context.nextYear);
     }
 
-    // Parse the curriculum XML file
-    private List<Subject> parseCurriculum(String xmlPath) {
-        List<Subject> subjects = new ArrayList<>();
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new File(xmlPath));
-            doc.getDocumentElement().normalize();
-
-            // Parse curriculum by year and semester
-            NodeList years = doc.getDocumentElement().getChildNodes();
-            for (int i = 0; i < years.getLength(); i++) {
-                Node yearNode = years.item(i);
-                if (yearNode.getNodeType() != Node.ELEMENT_NODE) continue;
-                String year = extractYear(yearNode.getNodeName());
-
-                NodeList semesters = yearNode.getChildNodes();
-                for (int j = 0; j < semesters.getLength(); j++) {
-                    Node semNode = semesters.item(j);
-                    if (semNode.getNodeType() != Node.ELEMENT_NODE) continue;
-                    String semester = extractSemester(semNode.getNodeName());
-
-                    NodeList subjectNodes = ((Element) semNode).getElementsByTagName("subject");
-                    for (int k = 0; k < subjectNodes.getLength(); k++) {
-                        Element subjectElem = (Element) subjectNodes.item(k);
-                        String code = subjectElem.getAttribute("subjectCode");
-                        int units = Integer.parseInt(subjectElem.getAttribute("units"));
-
-                        Subject subject = new Subject(code, units, year, semester);
-
-                        NodeList prereqs = subjectElem.getElementsByTagName("prerequisite");
-                        for (int l = 0; l < prereqs.getLength(); l++) {
-                            subject.addPrerequisite(prereqs.item(l).getTextContent());
-                        }
-
-                        subjects.add(subject);
-                    }
-                }
+    // The subject followed by the corequisites it needs to take with it this term, or null if it
+    // cannot be taken. Corequisites are tried in listed order, each only if it could be taken
+    // alongside the ones before, until the rule holds. The candidates are marked as recommended
+    // while checking and unmarked again before returning.
+    private Subject[] corequisiteGroup(RecommendationContext context, Subject subject) {
+        if (context.isRecommended(subject) || context.hasTaken(subject)) {
+            return null;
+        }
+        List<String> codes = subject.getCorequisites();
+        Subject[] group = new Subject[codes.size() + 1];
+        group[0] = subject;
+        int size = 1;
+        boolean met = false;
+        markRecommended(context, subject, true);
+        for (int i = 0; i < codes.size() && !met; i++) {
+            Subject coreq = curriculum.subjectAt(curriculum.ordinalOf(codes.get(i)));
+            if (coreq == null || curriculum.electiveId(coreq) >= 0
+                    || context.isRecommended(coreq) || context.hasTaken(coreq)) {
+                continue;
+            }
+            markRecommended(context, coreq, true);
+            if (meetsRule(coreq, context)) {
+                group[size++] = coreq;
+                met = meetsRule(subject, context);
+            } else {
+                markRecommended(context, coreq, false);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Error parsing curriculum XML: " + e.getMessage(), e);
         }
-        return subjects;
-    }
-
-    // Extract year from node name
-    private String extractYear(String nodeName) {
-        if (nodeName.toLowerCase().contains("firstyear")) return "1";
-        if (nodeName.toLowerCase().contains("secondyear")) return "2";
-        if (nodeName.toLowerCase().contains("thirdyear")) return "3";
-        if (nodeName.toLowerCase().contains("fourthyear")) return "4";
-        return "";
+        for (int i = 0; i < size; i++) {
+            markRecommended(context, group[i], false);
+        }
+        return met ? Arrays.copyOf(group, size) : null;
     }
 
-    // Extract semester from node name
-    private String extractSemester(String nodeName) {
-        if (nodeName.toLowerCase().contains("firstsem")) return "1";
-        if (nodeName.toLowerCase().contains("secondsem")) return "2";
-        return "";
+    private static void markRecommended(RecommendationContext context, Subject subject, boolean recommended) {
+        int ordinal = subject.getOrdinal();
+        if (recommended) {
+            context.recommended[ordinal >>> 6] |= 1L << ordinal;
+        } else {
+            context.recommended[ordinal >>> 6] &= ~(1L << ordinal);
+        }
     }
 
     // Get all subjects in the curriculum
     public List<Subject> getAllSubjects() {
-        return new ArrayList<>(allSubjects);
+        return new ArrayList<>(curriculum.getSubjects());
     }
 }
\ No newline at end of file
@@ -1,20 +1,15 @@
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.event.ItemEvent;
-import java.awt.event.ItemListener;
-import java.io.File;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 // Main Student Form
 public class StudentInfoForm extends JFrame {
@@ -25,10 +20,15 @@ public class StudentInfoForm extends JFrame {
     private JTextField subjectsTakenField;
     private JPanel recommendationsPanel;
     private JDialog recommendationsDialog;
-    private JPanel subjectHistoryPanel;
+    private SubjectHistoryModel subjectHistoryModel; // Saved history shown on the form
     private JScrollPane subjectHistoryScrollPane;
     private List<Subject> allSubjects; // List of all subjects from the curriculum
     private JButton clearFieldsButton;
+    private JProgressBar progressBar; // Shown while curriculum or recommendation work runs
+    private JLabel progressLabel;
+    private SwingWorker<List<Subject>, Void> curriculumLoader;
+    private RecommendationWorker recommendationWorker; // Current recommendation task, if any
+    private StudentStore studentStore; // Opened on the first submit
 
     // Add this with other field declarations
     private JComboBox<String> programComboBox;
@@ -40,9 +40,6 @@ public class StudentInfoForm extends JFrame {
         setSize(600, 500); // Increased size for the additional components
         setLocationRelativeTo(null);
 
-        // Load all subjects from the curriculum
-        loadAllSubjects();
-
         // Initialize components
         initComponents();
 
@@ -51,61 +48,52 @@ public class StudentInfoForm extends JFrame {
 
         // Make the frame visible
         setVisible(true);
+
+        // Load all subjects from the curriculum once the frame is showing
+        loadAllSubjects();
     }
 
+    // Parse the curriculum on a background thread; the subject list fills in when it is done
     private void loadAllSubjects() {
         allSubjects = new ArrayList<>();
-        try {
-            // Create DOM parser
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-
-            // Parse the XML file
-            Document document = builder.parse(new File("src/curriculum.xml"));
-
-            // Normalize the XML structure
-            document.getDocumentElement().normalize();
-
-            // Get all subject elements across all years and semesters
-            NodeList subjectList = document.getElementsByTagName("subject");
-
-            // Process each subject element
-            for (int i = 0; i < subjectList.getLength(); i++) {
-                Element subjectElement = (Element) subjectList.item(i);
-
-                // Get subject code and units
-                String subjectCode = subjectElement.getAttribute("subjectCode");
-                int units = Integer.parseInt(subjectElement.getAttribute("units"));
-
-                // Create Subject object
-                Subject subject = new Subject(subjectCode, units);
-
-                // Check if this subject has prerequisites
-                NodeList prerequisitesList = subjectElement.getElementsByTagName("prerequisite");
-                if (prerequisitesList.getLength() > 0) {
-                    // Create list to store prerequisites
-                    List<String> prerequisites = new ArrayList<>();
-
-                    // Extract each prerequisite
-                    for (int j = 0; j < prerequisitesList.getLength(); j++) {
-                        Element prerequisiteElement = (Element) prerequisitesList.item(j);
-                        String prerequisiteCode = prerequisiteElement.getTextContent();
-                        prerequisites.add(prerequisiteCode);
-                    }
+        showProgress("Loading curriculum...");
+        curriculumLoader = new SwingWorker<List<Subject>, Void>() {
+            @Override
+            protected List<Subject> doInBackground() {
+                // Shared, already parsed curriculum snapshot
+                return CurriculumRegistry.get().getSubjects();
+            }
 
-                    // Set prerequisites for the subject
-                    subject.setPrerequisites(prerequisites);
+            @Override
+            protected void done() {
+                hideProgress();
+                try {
+                    allSubjects = new ArrayList<>(get());
+                    System.out.println("Successfully loaded " + allSubjects.size() + " subjects from XML.");
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("Error loading subjects from XML: " + cause.getMessage());
+                    cause.printStackTrace();
                 }
-
-                // Add subject to the collection
-                allSubjects.add(subject);
             }
+        };
+        curriculumLoader.execute();
+    }
 
-            System.out.println("Successfully loaded " + allSubjects.size() + " subjects from XML.");
-        } catch (Exception e) {
-            System.err.println("Error loading subjects from XML: " + e.getMessage());
-            e.printStackTrace();
+    private void showProgress(String message) {
+        progressLabel.setText(message);
+        progressLabel.setVisible(true);
+        progressBar.setVisible(true);
+    }
+
+    private void hideProgress() {
+        // Another task may still be running
+        if ((curriculumLoader != null && !curriculumLoader.isDone())
+                || (recommendationWorker != null && !recommendationWorker.isDone())) {
+            return;
         }
+        progressLabel.setVisible(false);
+        progressBar.setVisible(false);
     }
 
     private void initComponents() {
@@ -146,6 +134,13 @@ public class StudentInfoForm extends JFrame {
             }
         });
 
+        // Progress indicator for background work
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        progressLabel = new JLabel();
+        progressLabel.setVisible(false);
+
         // Clear fields button
         clearFieldsButton = new JButton("Clear Fields");
         clearFieldsButton.addActionListener(e -> {
@@ -153,11 +148,9 @@ public class StudentInfoForm extends JFrame {
         });
         clearFieldsButton.setEnabled(false);
 
-        // Subject history panel (will contain dynamically added subject selection fields)
-        subjectHistoryPanel = new JPanel();
-        subjectHistoryPanel.setLayout(new BoxLayout(subjectHistoryPanel, BoxLayout.Y_AXIS));
-
-        subjectHistoryScrollPane = new JScrollPane(subjectHistoryPanel);
+        // Read-only table of the saved subject history
+        subjectHistoryModel = new SubjectHistoryModel(false);
+        subjectHistoryScrollPane = new JScrollPane(createSubjectHistoryTable(subjectHistoryModel));
         subjectHistoryScrollPane.setPreferredSize(new Dimension(550, 150));
         subjectHistoryScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         subjectHistoryScrollPane.setVisible(false); // Initially hidden
@@ -193,12 +186,10 @@ public class StudentInfoForm extends JFrame {
     }
 
     private void clearSubjectFields() {
-        subjectHistoryPanel.removeAll();
+        subjectHistoryModel.setRows(Collections.emptyList());
         subjectHistoryScrollPane.setVisible(false);
         subjectsTakenField.setText("");
         clearFieldsButton.setEnabled(false);
-        subjectHistoryPanel.revalidate();
-        subjectHistoryPanel.repaint();
     }
 
     private void updateSubjectsTakenField() {
@@ -217,10 +208,8 @@ public class StudentInfoForm extends JFrame {
             subjectsTakenField.setText("");
             // Hide the subject history panel
             subjectHistoryScrollPane.setVisible(false);
-            // Clear the subject history panel
-            subjectHistoryPanel.removeAll();
-            subjectHistoryPanel.revalidate();
-            subjectHistoryPanel.repaint();
+            // Clear the subject history table
+            subjectHistoryModel.setRows(Collections.emptyList());
             clearFieldsButton.setEnabled(false);
         }
     }
@@ -262,6 +251,14 @@ public class StudentInfoForm extends JFrame {
                 }
             }
 
+            if (!curriculumLoader.isDone()) {
+                JOptionPane.showMessageDialog(this,
+                        "The curriculum is still loading. Please try again in a moment.",
+                        "Please Wait",
+                        JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+
             // Create new dialog for subject inputs
             JDialog subjectDialog = new JDialog(this, "Subject History Entry", true);
             subjectDialog.setSize(500, 400);
@@ -271,124 +268,27 @@ public class StudentInfoForm extends JFrame {
             JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
             mainPanel.setBorder(new EmptyBorder(15, 15, 15, 15));
 
-            // Subject inputs panel with BoxLayout
-            JPanel subjectInputsPanel = new JPanel();
-            subjectInputsPanel.setLayout(new BoxLayout(subjectInputsPanel, BoxLayout.Y_AXIS));
-
             // Title label
             JLabel titleLabel = new JLabel("Enter Subject History");
             titleLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
-            titleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-            subjectInputsPanel.add(titleLabel);
-            subjectInputsPanel.add(Box.createVerticalStrut(15));
-
-            // Header row with better styling
-            JPanel headerPanel = new JPanel(new GridLayout(1, 3));
-            headerPanel.setMaximumSize(new Dimension(450, 30));
-            headerPanel.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.GRAY));
-
-            JLabel numLabel = new JLabel("No.", JLabel.CENTER);
-            numLabel.setFont(numLabel.getFont().deriveFont(Font.BOLD));
-            headerPanel.add(numLabel);
-
-            JLabel subjectLabel = new JLabel("Subject", JLabel.CENTER);
-            subjectLabel.setFont(subjectLabel.getFont().deriveFont(Font.BOLD));
-            headerPanel.add(subjectLabel);
+            titleLabel.setHorizontalAlignment(JLabel.CENTER);
+            mainPanel.add(titleLabel, BorderLayout.NORTH);
 
-            JLabel statusLabel = new JLabel("Status", JLabel.CENTER);
-            statusLabel.setFont(statusLabel.getFont().deriveFont(Font.BOLD));
-            headerPanel.add(statusLabel);
-
-            subjectInputsPanel.add(headerPanel);
-            subjectInputsPanel.add(Box.createVerticalStrut(5));
-
-            // List to store the selected subject data
+            // One editable row per subject, each starting at the first subject and "Pass"
             List<SubjectData> subjectDataList = new ArrayList<>();
-
-            // Create input fields for each subject
+            String firstCode = allSubjects.isEmpty() ? null : allSubjects.get(0).getCode();
             for (int i = 0; i < subjectCount; i++) {
-                final int rowIndex = i;
-                JPanel rowPanel = new JPanel(new GridLayout(1, 3, 5, 0));
-                rowPanel.setMaximumSize(new Dimension(450, 30));
-
-                // Apply alternating row background for better readability
-                if (i % 2 == 1) {
-                    rowPanel.setBackground(new Color(245, 245, 250));
-                }
-
-                // Subject number label
-                JLabel numberLabel = new JLabel((i + 1) + ".", JLabel.CENTER);
-
-                // Subject selection combo box
-                JComboBox<String> subjectComboBox = new JComboBox<>(
-                        allSubjects.stream()
-                                .map(Subject::getCode)
-                                .toArray(String[]::new)
-                );
-
-                // Add item listener to check for duplicates when selection changes
-                subjectComboBox.addItemListener(new ItemListener() {
-                    @Override
-                    public void itemStateChanged(ItemEvent e) {
-                        if (e.getStateChange() == ItemEvent.SELECTED) {
-                            // Store selected value in the data list
-                            if (rowIndex < subjectDataList.size()) {
-                                subjectDataList.get(rowIndex).setSubject((String) subjectComboBox.getSelectedItem());
-                            }
-
-                            // Check for duplicates
-                            checkForDuplicatesInDialog(subjectInputsPanel, rowIndex);
-                        }
-                    }
-                });
-
-                // Pass/Fail combo box with custom rendering
-                JComboBox<String> statusComboBox = new JComboBox<>(new String[]{"Pass", "Fail"});
-                statusComboBox.setRenderer(new DefaultListCellRenderer() {
-                    @Override
-                    public Component getListCellRendererComponent(JList<?> list, Object value,
-                                                                  int index, boolean isSelected, boolean cellHasFocus) {
-                        Component c = super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-
-                        if ("Pass".equals(value)) {
-                            setForeground(isSelected ? Color.WHITE : new Color(0, 128, 0));
-                        } else if ("Fail".equals(value)) {
-                            setForeground(isSelected ? Color.WHITE : new Color(178, 34, 34));
-                        }
-
-                        return this;
-                    }
-                });
-
-                // Add status change listener
-                statusComboBox.addItemListener(new ItemListener() {
-                    @Override
-                    public void itemStateChanged(ItemEvent e) {
-                        if (e.getStateChange() == ItemEvent.SELECTED) {
-                            // Store selected value in the data list
-                            if (rowIndex < subjectDataList.size()) {
-                                subjectDataList.get(rowIndex).setStatus((String) statusComboBox.getSelectedItem());
-                            }
-                        }
-                    }
-                });
-
-                rowPanel.add(numberLabel);
-                rowPanel.add(subjectComboBox);
-                rowPanel.add(statusComboBox);
-
-                subjectInputsPanel.add(rowPanel);
-                subjectInputsPanel.add(Box.createVerticalStrut(5)); // Add some spacing
-
-                // Initialize data structure for this row
                 SubjectData data = new SubjectData();
-                data.setSubject((String) subjectComboBox.getSelectedItem());
-                data.setStatus((String) statusComboBox.getSelectedItem());
+                data.setSubject(firstCode);
+                data.setStatus("Pass");
                 subjectDataList.add(data);
             }
+            SubjectHistoryModel subjectInputModel = new SubjectHistoryModel(true);
+            subjectInputModel.setRows(subjectDataList);
+            JTable subjectInputTable = createSubjectHistoryTable(subjectInputModel);
 
             // Create scroll pane
-            JScrollPane scrollPane = new JScrollPane(subjectInputsPanel);
+            JScrollPane scrollPane = new JScrollPane(subjectInputTable);
             scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
             mainPanel.add(scrollPane, BorderLayout.CENTER);
 
@@ -400,18 +300,13 @@ public class StudentInfoForm extends JFrame {
             cancelButton.addActionListener(e -> subjectDialog.dispose());
 
             saveButton.addActionListener(e -> {
-                // Check for duplicates before saving
-                boolean hasDuplicates = false;
-                Set<String> subjectSet = new HashSet<>();
-
-                for (SubjectData data : subjectDataList) {
-                    if (!subjectSet.add(data.getSubject())) {
-                        hasDuplicates = true;
-                        break;
-                    }
+                // Commit a selection still being edited
+                if (subjectInputTable.isEditing()) {
+                    subjectInputTable.getCellEditor().stopCellEditing();
                 }
 
-                if (hasDuplicates) {
+                // Check for duplicates before saving
+                if (subjectInputModel.hasDuplicates()) {
                     JOptionPane.showMessageDialog(subjectDialog,
                             "Please eliminate duplicate subject selections.",
                             "Validation Error",
@@ -420,7 +315,7 @@ public class StudentInfoForm extends JFrame {
                 }
 
                 // Save the subject data
-                saveSubjectData(subjectDataList);
+                saveSubjectData(subjectInputModel.getRows());
                 subjectDialog.dispose();
 
                 // Show confirmation
@@ -447,43 +342,235 @@ public class StudentInfoForm extends JFrame {
         }
     }
 
-    // Method to check for duplicates in the dialog
-    private void checkForDuplicatesInDialog(JPanel panel, int changedRowIndex) {
-        Set<String> selectedSubjects = new HashSet<>();
-        List<JComboBox<?>> subjectBoxes = new ArrayList<>();
-
-        // Collect all subject combo boxes
-        for (Component comp : panel.getComponents()) {
-            if (comp instanceof JPanel) {
-                JPanel rowPanel = (JPanel) comp;
-                // Skip header panel
-                if (rowPanel.getComponentCount() == 3 && rowPanel.getComponent(1) instanceof JComboBox) {
-                    JComboBox<?> subjectBox = (JComboBox<?>) rowPanel.getComponent(1);
-                    subjectBoxes.add(subjectBox);
-                    String selectedSubject = (String) subjectBox.getSelectedItem();
-
-                    // Check if this subject was already selected
-                    if (selectedSubject != null && !selectedSubjects.add(selectedSubject)) {
-                        // Found a duplicate - highlight all instances
-                        for (JComboBox<?> box : subjectBoxes) {
-                            if (selectedSubject.equals(box.getSelectedItem())) {
-                                box.setBorder(BorderFactory.createLineBorder(Color.RED, 2));
-                            }
-                        }
-                        return;
+    // Table over a subject history model. Rows are only rendered while visible, and every row
+    // shares the column's one renderer and one editor.
+    private JTable createSubjectHistoryTable(SubjectHistoryModel model) {
+        JTable table = new JTable(model);
+        table.setRowHeight(24);
+        table.setFillsViewportHeight(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getColumnModel().getColumn(0).setMaxWidth(60);
+
+        table.getColumnModel().getColumn(0).setCellRenderer(new SubjectHistoryRenderer());
+
+        // Subjects picked by more than one row are outlined in red
+        table.getColumnModel().getColumn(1).setCellRenderer(new SubjectHistoryRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                if (model.isDuplicate(row)) {
+                    setBorder(BorderFactory.createLineBorder(Color.RED, 2));
+                }
+                return this;
+            }
+        });
+
+        table.getColumnModel().getColumn(2).setCellRenderer(new SubjectHistoryRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                if (!isSelected) {
+                    setForeground("Pass".equals(value) ? new Color(0, 128, 0) : new Color(178, 34, 34));
+                }
+                return this;
+            }
+        });
+
+        if (model.isEditable()) {
+            JComboBox<String> subjectComboBox = new JComboBox<>(
+                    allSubjects.stream()
+                            .map(Subject::getCode)
+                            .toArray(String[]::new)
+            );
+            table.getColumnModel().getColumn(1).setCellEditor(new DefaultCellEditor(subjectComboBox));
+
+            // Pass/Fail combo box with custom rendering
+            JComboBox<String> statusComboBox = new JComboBox<>(new String[]{"Pass", "Fail"});
+            statusComboBox.setRenderer(new DefaultListCellRenderer() {
+                @Override
+                public Component getListCellRendererComponent(JList<?> list, Object value,
+                                                              int index, boolean isSelected, boolean cellHasFocus) {
+                    Component c = super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+
+                    if ("Pass".equals(value)) {
+                        setForeground(isSelected ? Color.WHITE : new Color(0, 128, 0));
+                    } else if ("Fail".equals(value)) {
+                        setForeground(isSelected ? Color.WHITE : new Color(178, 34, 34));
                     }
+
+                    return this;
                 }
+            });
+            table.getColumnModel().getColumn(2).setCellEditor(new DefaultCellEditor(statusComboBox));
+        }
+        return table;
+    }
+
+    // Centered cell with the alternating row background of the history rows
+    private static class SubjectHistoryRenderer extends DefaultTableCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        SubjectHistoryRenderer() {
+            setHorizontalAlignment(JLabel.CENTER);
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            if (!isSelected) {
+                setForeground(table.getForeground());
+                setBackground(row % 2 == 1 ? new Color(245, 245, 250) : table.getBackground());
             }
+            return this;
+        }
+    }
+
+    // Subject history rows behind a JTable. rowsByCode maps each subject code to the rows holding
+    // it, so a changed selection only re-checks and repaints the rows of its old and new code
+    // instead of rescanning the whole history.
+    private static class SubjectHistoryModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"No.", "Subject", "Status"};
+
+        private final boolean editable;
+        private final List<SubjectData> rows = new ArrayList<>();
+        private final Map<String, List<Integer>> rowsByCode = new HashMap<>();
+        private int duplicateCodes; // Codes held by more than one row
+
+        SubjectHistoryModel(boolean editable) {
+            this.editable = editable;
+        }
+
+        boolean isEditable() {
+            return editable;
+        }
+
+        void setRows(List<SubjectData> subjectDataList) {
+            rows.clear();
+            rowsByCode.clear();
+            duplicateCodes = 0;
+            for (SubjectData data : subjectDataList) {
+                SubjectData copy = new SubjectData();
+                copy.setSubject(data.getSubject());
+                copy.setStatus(data.getStatus());
+                rows.add(copy);
+                index(copy.getSubject(), rows.size() - 1);
+            }
+            fireTableDataChanged();
+        }
+
+        // Copies of the current rows
+        List<SubjectData> getRows() {
+            List<SubjectData> copies = new ArrayList<>(rows.size());
+            for (SubjectData data : rows) {
+                SubjectData copy = new SubjectData();
+                copy.setSubject(data.getSubject());
+                copy.setStatus(data.getStatus());
+                copies.add(copy);
+            }
+            return copies;
+        }
+
+        boolean isDuplicate(int row) {
+            List<Integer> holders = rowsByCode.get(rows.get(row).getSubject());
+            return holders != null && holders.size() > 1;
+        }
+
+        boolean hasDuplicates() {
+            return duplicateCodes > 0;
         }
 
-        // No duplicates found, reset borders
-        for (JComboBox<?> box : subjectBoxes) {
-            box.setBorder(UIManager.getLookAndFeel().getDefaults().getBorder("ComboBox.border"));
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            SubjectData data = rows.get(row);
+            switch (column) {
+                case 0:
+                    return (row + 1) + ".";
+                case 1:
+                    return data.getSubject();
+                default:
+                    return data.getStatus();
+            }
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return editable && column > 0;
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            SubjectData data = rows.get(row);
+            if (column == 2) {
+                data.setStatus((String) value);
+                fireTableCellUpdated(row, column);
+                return;
+            }
+
+            String previous = data.getSubject();
+            String code = (String) value;
+            if (Objects.equals(previous, code)) {
+                return;
+            }
+            unindex(previous, row);
+            data.setSubject(code);
+            index(code, row);
+
+            // Only rows sharing the old or new code can change their duplicate marking
+            fireTableCellUpdated(row, column);
+            repaintRows(previous);
+            repaintRows(code);
+        }
+
+        private void index(String code, int row) {
+            List<Integer> holders = rowsByCode.computeIfAbsent(code, key -> new ArrayList<>(1));
+            holders.add(row);
+            if (holders.size() == 2) {
+                duplicateCodes++;
+            }
+        }
+
+        private void unindex(String code, int row) {
+            List<Integer> holders = rowsByCode.get(code);
+            holders.remove(Integer.valueOf(row));
+            if (holders.size() == 1) {
+                duplicateCodes--;
+            } else if (holders.isEmpty()) {
+                rowsByCode.remove(code);
+            }
+        }
+
+        private void repaintRows(String code) {
+            List<Integer> holders = rowsByCode.get(code);
+            if (holders != null) {
+                for (int holder : holders) {
+                    fireTableCellUpdated(holder, 1);
+                }
+            }
         }
     }
 
     // Class to store subject data
-    private class SubjectData {
+    private static class SubjectData {
         private String subject;
         private String status;
 
@@ -504,64 +591,6 @@ public class StudentInfoForm extends JFrame {
         }
     }
 
-    // Method to save subject data
-
-
-    private void checkForDuplicateSubjects(int changedRowIndex) {
-        Set<String> selectedSubjects = new HashSet<>();
-
-        // Collect all currently selected subjects
-        for (int i = 0; i < subjectHistoryPanel.getComponentCount(); i++) {
-            Component comp = subjectHistoryPanel.getComponent(i);
-            if (comp instanceof JPanel && i != 0) { // Skip header panel
-                JPanel rowPanel = (JPanel) comp;
-                // Check if it's a subject row (has 3 components)
-                if (rowPanel.getComponentCount() == 3) {
-                    JComboBox<?> subjectBox = (JComboBox<?>) rowPanel.getComponent(1);
-                    String selectedSubject = (String) subjectBox.getSelectedItem();
-
-                    // Check if this subject was already selected
-                    if (selectedSubject != null && !selectedSubjects.add(selectedSubject)) {
-                        // Found a duplicate - highlight the subject boxes
-                        for (int j = 0; j < subjectHistoryPanel.getComponentCount(); j++) {
-                            Component innerComp = subjectHistoryPanel.getComponent(j);
-                            if (innerComp instanceof JPanel && j != 0) { // Skip header
-                                JPanel innerRowPanel = (JPanel) innerComp;
-                                if (innerRowPanel.getComponentCount() == 3) {
-                                    JComboBox<?> innerSubjectBox = (JComboBox<?>) innerRowPanel.getComponent(1);
-                                    String innerSelectedSubject = (String) innerSubjectBox.getSelectedItem();
-
-                                    if (selectedSubject.equals(innerSelectedSubject)) {
-                                        innerSubjectBox.setBorder(BorderFactory.createLineBorder(Color.RED, 2));
-                                    }
-                                }
-                            }
-                        }
-
-                        // Show warning
-                        JOptionPane.showMessageDialog(this,
-                                "Duplicate subject selected: " + selectedSubject + "\nPlease select different subjects.",
-                                "Duplicate Subject",
-                                JOptionPane.WARNING_MESSAGE);
-                        return;
-                    }
-                }
-            }
-        }
-
-        // No duplicates found, reset borders
-        for (int i = 0; i < subjectHistoryPanel.getComponentCount(); i++) {
-            Component comp = subjectHistoryPanel.getComponent(i);
-            if (comp instanceof JPanel && i != 0) { // Skip header
-                JPanel rowPanel = (JPanel) comp;
-                if (rowPanel.getComponentCount() == 3) {
-                    JComboBox<?> subjectBox = (JComboBox<?>) rowPanel.getComponent(1);
-                    subjectBox.setBorder(UIManager.getLookAndFeel().getDefaults().getBorder("ComboBox.border"));
-                }
-            }
-        }
-    }
-
     // Update the checkForRecommendations method to handle both first-year first-semester
 // and other year/semester combinations
     private void checkForRecommendations() {
@@ -605,26 +634,13 @@ public class StudentInfoForm extends JFrame {
         // Create a map to store taken subjects
         Map<String, Boolean> subjectsTaken = new HashMap<>();
 
-        // Collect subjects from the UI
-        for (Component comp : subjectHistoryPanel.getComponents()) {
-            if (comp instanceof JPanel) {
-                JPanel rowPanel = (JPanel) comp;
-                // Skip header row
-                if (rowPanel.getComponentCount() == 3 && rowPanel.getComponent(1) instanceof JComboBox) {
-                    JComboBox<?> subjectBox = (JComboBox<?>) rowPanel.getComponent(1);
-                    JComboBox<?> statusBox = (JComboBox<?>) rowPanel.getComponent(2);
+        // Collect subjects from the saved history
+        for (int row = 0; row < subjectHistoryModel.getRowCount(); row++) {
+            String subjectCode = (String) subjectHistoryModel.getValueAt(row, 1);
+            String status = (String) subjectHistoryModel.getValueAt(row, 2);
 
-                    String subjectCode = (String) subjectBox.getSelectedItem();
-                    String status = (String) statusBox.getSelectedItem();
-
-                    // Add to map - true for "Pass", false for "Fail"
-                    subjectsTaken.put(subjectCode, "Pass".equals(status));
-                }
-            }
-
-            for(SubjectData data : savedSubjectData) {
-                subjectsTaken.put(data.subject, "pass".equalsIgnoreCase(data.status));
-            }
+            // Add to map - true for "Pass", false for "Fail"
+            subjectsTaken.put(subjectCode, "Pass".equals(status));
         }
 
         // If no subjects have been entered, show a message
@@ -640,31 +656,83 @@ public class StudentInfoForm extends JFrame {
         showRecommendationsDialog(subjectsTaken);
     }
 
-    // Updated method to show recommendations based on taken subjects
+    // Compute recommendations in the background, replacing any computation still in flight
     private void showRecommendationsDialog(Map<String, Boolean> subjectsTaken) {
-        // Clear previous recommendations
-        recommendationsPanel.removeAll();
+        if (recommendationWorker != null && !recommendationWorker.isDone()) {
+            recommendationWorker.cancel(true);
+        }
 
-        // Get current year and semester
-        int yearNum = getYearNumber((String) yearComboBox.getSelectedItem());
-        int semesterNum = getSemesterNumber((String) semesterComboBox.getSelectedItem());
+        // Read the form on the EDT; the worker only sees these copies
+        recommendationWorker = new RecommendationWorker(
+                (String) programComboBox.getSelectedItem(),
+                subjectsTaken == null ? null : new HashMap<>(subjectsTaken),
+                (String) yearComboBox.getSelectedItem(),
+                (String) semesterComboBox.getSelectedItem());
+        showProgress("Computing recommendations...");
+        recommendationWorker.execute();
+    }
 
-        // Get recommended subjects
-        List<Subject> subjects;
-        StudentEval se = new StudentEval("bsit");
+    // Builds the engine and computes one recommendation off the EDT. Results from a worker that was
+    // cancelled because the year or semester changed are dropped.
+    private class RecommendationWorker extends SwingWorker<List<Subject>, Void> {
+        private final String program;
+        private final Map<String, Boolean> subjectsTaken;
+        private final String yearLabel;
+        private final String semesterLabel;
+
+        RecommendationWorker(String program, Map<String, Boolean> subjectsTaken, String yearLabel, String semesterLabel) {
+            this.program = program;
+            this.subjectsTaken = subjectsTaken;
+            this.yearLabel = yearLabel;
+            this.semesterLabel = semesterLabel;
+        }
 
-        if (subjectsTaken == null) {
-            // For first year, first semester - use default method
+        @Override
+        protected List<Subject> doInBackground() {
+            StudentEval se = new StudentEval(program);
+            if (isCancelled()) {
+                return Collections.emptyList();
+            }
 
-            subjects = se.getRecommendedSubjects();
-        } else {
+            if (subjectsTaken == null) {
+                // For first year, first semester - use default method
+                return se.getRecommendedSubjects();
+            }
             // For other years/semesters - use overloaded method
-            subjects = se.getRecommendedSubjects(subjectsTaken, yearNum, semesterNum);
+            return se.getRecommendedSubjects(subjectsTaken, getYearNumber(yearLabel), getSemesterNumber(semesterLabel));
+        }
+
+        @Override
+        protected void done() {
+            if (recommendationWorker == this) {
+                recommendationWorker = null;
+            }
+            hideProgress();
+            if (isCancelled()) {
+                return;
+            }
+
+            try {
+                displayRecommendations(get(), yearLabel, semesterLabel);
+            } catch (CancellationException | InterruptedException e) {
+                // Superseded by a newer request
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(StudentInfoForm.this,
+                        "Could not compute recommendations: " + e.getCause().getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+            }
         }
+    }
+
+    // Show computed recommendations; runs on the EDT
+    private void displayRecommendations(List<Subject> subjects, String yearLabel, String semesterLabel) {
+        // Clear previous recommendations
+        recommendationsPanel.removeAll();
 
         System.out.println("\n----- RECOMMENDED SUBJECTS -----");
-        System.out.println("Year: " + yearComboBox.getSelectedItem() +
-                ", Semester: " + semesterComboBox.getSelectedItem());
+        System.out.println("Year: " + yearLabel +
+                ", Semester: " + semesterLabel);
 
         if (subjects.isEmpty()) {
             System.out.println("No subjects recommended");
@@ -687,8 +755,8 @@ public class StudentInfoForm extends JFrame {
 
         // Add a title
         JLabel titleLabel = new JLabel("Recommended Subjects for " +
-                yearComboBox.getSelectedItem() + ", " +
-                semesterComboBox.getSelectedItem());
+                yearLabel + ", " +
+                semesterLabel);
         titleLabel.setFont(new Font("SansSerif", Font.BOLD, 14));
         titleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
         recommendationsPanel.add(titleLabel);
@@ -776,69 +844,16 @@ public class StudentInfoForm extends JFrame {
         }
     }
 
-    // Method to update the subject history panel
+    // Show the saved history in the form's table
     private void updateSubjectHistoryPanel(List<SubjectData> subjectDataList) {
-        // Clear existing content
-        subjectHistoryPanel.removeAll();
-
-        // Create header panel
-        JPanel headerPanel = new JPanel(new GridLayout(1, 3));
-        headerPanel.setMaximumSize(new Dimension(550, 25));
-        headerPanel.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, Color.GRAY));
-
-        JLabel numLabel = new JLabel("No.", JLabel.CENTER);
-        numLabel.setFont(numLabel.getFont().deriveFont(Font.BOLD));
-        headerPanel.add(numLabel);
-
-        JLabel subjectLabel = new JLabel("Subject", JLabel.CENTER);
-        subjectLabel.setFont(subjectLabel.getFont().deriveFont(Font.BOLD));
-        headerPanel.add(subjectLabel);
-
-        JLabel statusLabel = new JLabel("Status", JLabel.CENTER);
-        statusLabel.setFont(statusLabel.getFont().deriveFont(Font.BOLD));
-        headerPanel.add(statusLabel);
-
-        subjectHistoryPanel.add(headerPanel);
-
-        // Add each subject row
-        for (int i = 0; i < subjectDataList.size(); i++) {
-            SubjectData data = subjectDataList.get(i);
-            JPanel rowPanel = new JPanel(new GridLayout(1, 3));
-            rowPanel.setMaximumSize(new Dimension(550, 25));
-
-            // Apply alternating colors
-            if (i % 2 == 1) {
-                rowPanel.setBackground(new Color(245, 245, 250));
-            }
-
-            JLabel numberLabel = new JLabel((i + 1) + ".", JLabel.CENTER);
-            rowPanel.add(numberLabel);
-
-            // Create a non-editable label for the subject code
-            JLabel subjectCodeLabel = new JLabel(data.getSubject(), JLabel.CENTER);
-            rowPanel.add(subjectCodeLabel);
-
-            // Create a status label with appropriate color
-            JLabel subjectStatusLabel = new JLabel(data.getStatus(), JLabel.CENTER);
-            if ("Pass".equals(data.getStatus())) {
-                subjectStatusLabel.setForeground(new Color(0, 128, 0));
-            } else {
-                subjectStatusLabel.setForeground(new Color(178, 34, 34));
-            }
-            rowPanel.add(subjectStatusLabel);
-
-            subjectHistoryPanel.add(rowPanel);
-        }
+        subjectHistoryModel.setRows(subjectDataList);
 
         // Make the scroll pane visible if there are subjects
         if (!subjectDataList.isEmpty()) {
             subjectHistoryScrollPane.setVisible(true);
             clearFieldsButton.setEnabled(true);
+            subjectHistoryScrollPane.revalidate();
         }
-
-        // Refresh the panel
-        subjectHistoryPanel.revalidate();
-        subjectHistoryPanel.repaint();
     }
 
     // Update the submitForm method to include recommendations
@@ -984,6 +999,8 @@ public class StudentInfoForm extends JFrame {
 
         buttonPanel.add(submitButton);
         buttonPanel.add(viewRecommendationsButton);
+        buttonPanel.add(progressBar);
+        buttonPanel.add(progressLabel);
 
         // Add panels to main panel
         mainPanel.add(formPanel, BorderLayout.CENTER);
@@ -1069,7 +1086,9 @@ public class StudentInfoForm extends JFrame {
             }
         }
 
-        // In a real application, save the student data to database
+        if (!saveStudent(id, year, semester, isFirstYearFirstSemester)) {
+            return;
+        }
 
         // If not first year first semester, display subject summary
         if (!isFirstYearFirstSemester && savedSubjectData != null) {
@@ -1120,6 +1139,38 @@ public class StudentInfoForm extends JFrame {
         savedSubjectData = null;
     }
 
+    // Persist the submitted student to the local student store; returns false if it could not be saved
+    private boolean saveStudent(String id, String year, String semester, boolean isNew) {
+        Student student = new Student(id, (String) programComboBox.getSelectedItem(), isNew);
+        student.setCurrentTerm(getYearNumber(year), getSemesterNumber(semester));
+        if (!isNew && savedSubjectData != null) {
+            Map<String, Subject> subjectsByCode = new HashMap<>();
+            for (Subject subject : allSubjects) {
+                subjectsByCode.put(subject.getCode(), subject);
+            }
+            for (SubjectData data : savedSubjectData) {
+                Subject subject = subjectsByCode.get(data.getSubject());
+                student.addTakenSubject(subject != null ? subject : new Subject(data.getSubject(), 0),
+                        "Pass".equalsIgnoreCase(data.getStatus()));
+            }
+        }
+
+        try {
+            if (studentStore == null) {
+                studentStore = StudentStore.open();
+            }
+            studentStore.put(student);
+            studentStore.sync();
+            return true;
+        } catch (RuntimeException e) {
+            JOptionPane.showMessageDialog(this,
+                    "Could not save student information: " + e.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+    }
+
     public static void main(String[] args) {
         // Set look and feel to system default
         try {
@@ -0,0 +1,641 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+// Local store of Student records keyed by studentId. Records are appended to a single log file and
+// an in-memory index maps each id to the offset of its latest version, so a lookup is one
+// positional read and a full scan is one sequential pass over the file. Subject codes are written
+// once to a dictionary in the log and referred to by varint ids afterwards. When superseded records
+// outweigh live ones the log is rewritten with only the live records (compaction).
+//
+// Record framing: [int payload length][int CRC32 of payload][payload]. A torn record at the end of
+// the file (a crash mid-append) is cut off when the store is opened; a damaged record anywhere else
+// fails the open rather than silently dropping every record after it.
+public final class StudentStore implements Closeable {
+    public static final String DEFAULT_STORE = "data/students.log";
+
+    private static final int MAGIC = 0x4D535455; // "MSTU"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int FRAME_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 << 20;
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+    private static final int SCAN_BUFFER_BYTES = 1 << 16;
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CODE = 3;
+
+    private final Path path;
+    private FileChannel channel;
+    private long size;
+    private long liveBytes;
+    private final Map<String, Long> offsets = new HashMap<>();
+    private final Map<String, Integer> recordBytes = new HashMap<>();
+    private final Map<String, Integer> codeIds = new HashMap<>();
+    private final List<String> codes = new ArrayList<>();
+
+    private StudentStore(Path path) {
+        this.path = path;
+    }
+
+    // Open the store at the given path, creating it if needed
+    public static StudentStore open(Path path) {
+        StudentStore store = new StudentStore(path.toAbsolutePath().normalize());
+        try {
+            store.load();
+        } catch (IOException e) {
+            if (store.channel != null) {
+                closeQuietly(store.channel);
+            }
+            throw new RuntimeException("Error opening student store: " + e.getMessage(), e);
+        }
+        return store;
+    }
+
+    public static StudentStore open() {
+        return open(Paths.get(DEFAULT_STORE));
+    }
+
+    // Check if a file starts with the store's header
+    public static boolean isStore(Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            return new DataInputStream(in).readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void load() throws IOException {
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+
+        // Rebuild the dictionary and index from the log, up to a torn record at the end
+        LogReader reader = new LogReader(channel, channel.size(), false);
+        long end = reader.position();
+        byte[] payload;
+        while ((payload = reader.next()) != null) {
+            apply(payload, end, reader.position() - end);
+            end = reader.position();
+        }
+        size = end;
+        if (channel.size() > size) {
+            channel.truncate(size);
+        }
+    }
+
+    // Update the dictionary and index for one record read back from the log
+    private void apply(byte[] payload, long offset, long length) {
+        Decoder in = new Decoder(payload);
+        byte type = in.readByte();
+        if (type == CODE) {
+            String code = in.readString();
+            codeIds.put(code, codes.size());
+            codes.add(code);
+            liveBytes += length;
+        } else if (type == PUT || type == DELETE) {
+            String studentId = in.readString();
+            Integer previous = recordBytes.remove(studentId);
+            if (previous != null) {
+                liveBytes -= previous;
+            }
+            offsets.remove(studentId);
+            if (type == PUT) {
+                offsets.put(studentId, offset);
+                recordBytes.put(studentId, (int) length);
+                liveBytes += length;
+            }
+        } else {
+            throw new IllegalStateException("Unknown student store record type " + type);
+        }
+    }
+
+    // Store the latest version of a student, replacing any earlier one
+    public synchronized void put(Student student) {
+        if (student.getStudentId() == null || student.getStudentId().isEmpty()) {
+            throw new IllegalArgumentException("Student ID cannot be empty");
+        }
+        try {
+            Encoder out = new Encoder();
+            for (String code : student.getAcademicHistory().keySet()) {
+                defineCode(code, out);
+            }
+            for (String code : student.getCurrentSubjects()) {
+                defineCode(code, out);
+            }
+
+            long offset = size + out.length();
+            int recordStart = out.length();
+            out.beginRecord();
+            encodeStudent(student, out);
+            out.endRecord();
+            append(out);
+
+            // Only now that the codes are in the log may later records refer to them
+            for (String code : out.newCodes.keySet()) {
+                codeIds.put(code, codes.size());
+                codes.add(code);
+                liveBytes += FRAME_BYTES + 1 + Encoder.stringLength(code);
+            }
+            String studentId = student.getStudentId();
+            Integer previous = recordBytes.put(studentId, out.length() - recordStart);
+            liveBytes += out.length() - recordStart - (previous == null ? 0 : previous);
+            offsets.put(studentId, offset);
+            compactIfWasteful();
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing student store: " + e.getMessage(), e);
+        }
+    }
+
+    // Remove a student; returns false if there was nothing stored
+    public synchronized boolean delete(String studentId) {
+        if (!offsets.containsKey(studentId)) {
+            return false;
+        }
+        try {
+            Encoder out = new Encoder();
+            out.beginRecord();
+            out.writeByte(DELETE);
+            out.writeString(studentId);
+            out.endRecord();
+            append(out);
+
+            offsets.remove(studentId);
+            liveBytes -= recordBytes.remove(studentId);
+            compactIfWasteful();
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing student store: " + e.getMessage(), e);
+        }
+    }
+
+    // Latest version of a student, or null
+    public synchronized Student get(String studentId) {
+        Long offset = offsets.get(studentId);
+        if (offset == null) {
+            return null;
+        }
+        try {
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+            readFully(frame, offset);
+            frame.flip();
+            ByteBuffer payload = ByteBuffer.allocate(frame.getInt());
+            readFully(payload, offset + FRAME_BYTES);
+            return decodeStudent(new Decoder(payload.array()), codes);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading student store: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized boolean contains(String studentId) {
+        return offsets.containsKey(studentId);
+    }
+
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    public synchronized Set<String> getStudentIds() {
+        return new TreeSet<>(offsets.keySet());
+    }
+
+    // Visit the latest version of every stored student in log order with one sequential read.
+    // Writes made during the scan are not visited.
+    public void scan(Consumer<Student> visitor) {
+        try (Stream<Student> students = stream()) {
+            students.forEach(visitor);
+        }
+    }
+
+    // Lazily read stream of every stored student; close it to release the file
+    public Stream<Student> stream() {
+        Map<String, Long> live;
+        long end;
+        FileChannel reading;
+        synchronized (this) {
+            live = new HashMap<>(offsets);
+            end = size;
+            try {
+                // A separate channel keeps reading the same file even if a compaction replaces it
+                reading = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new RuntimeException("Error reading student store: " + e.getMessage(), e);
+            }
+        }
+
+        LogReader reader;
+        try {
+            reader = new LogReader(reading, end, true);
+        } catch (IOException e) {
+            closeQuietly(reading);
+            throw new RuntimeException("Error reading student store: " + e.getMessage(), e);
+        }
+
+        Iterator<Student> students = new Iterator<Student>() {
+            private final List<String> scanCodes = new ArrayList<>();
+            private Student next;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null) {
+                        long offset = reader.position();
+                        byte[] payload = reader.next();
+                        if (payload == null) {
+                            return false;
+                        }
+                        Decoder in = new Decoder(payload);
+                        if (payload[0] == CODE) {
+                            in.readByte();
+                            scanCodes.add(in.readString());
+                        } else if (payload[0] == PUT) {
+                            // Only the latest version of each student is live
+                            Student student = decodeStudent(in, scanCodes);
+                            if (Long.valueOf(offset).equals(live.get(student.getStudentId()))) {
+                                next = student;
+                            }
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new RuntimeException("Error reading student store: " + e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public Student next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Student student = next;
+                next = null;
+                return student;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliterator(students, live.size(),
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> closeQuietly(reader));
+    }
+
+    // Rewrite the log with only the live records and a fresh dictionary
+    public synchronized void compact() {
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            Files.deleteIfExists(compacted);
+            try (StudentStore target = open(compacted); Stream<Student> students = stream()) {
+                students.forEach(target::put);
+                target.channel.force(true);
+            }
+
+            channel.close();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            offsets.clear();
+            recordBytes.clear();
+            codeIds.clear();
+            codes.clear();
+            liveBytes = 0;
+            load();
+        } catch (IOException e) {
+            throw new RuntimeException("Error compacting student store: " + e.getMessage(), e);
+        }
+    }
+
+    // Force appended records to disk
+    public synchronized void sync() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing student store: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Error closing student store: " + e.getMessage(), e);
+        }
+    }
+
+    // Compact once superseded records take more space than live ones
+    private void compactIfWasteful() {
+        long dead = size - HEADER_BYTES - liveBytes;
+        if (size >= MIN_COMPACTION_BYTES && dead > liveBytes) {
+            compact();
+        }
+    }
+
+    // Write a code's dictionary record ahead of the record using it; the dictionary itself is only
+    // updated once the append succeeds
+    private void defineCode(String code, Encoder out) {
+        if (codeIds.containsKey(code) || out.newCodes.containsKey(code)) {
+            return;
+        }
+        out.beginRecord();
+        out.writeByte(CODE);
+        out.writeString(code);
+        out.endRecord();
+        out.newCodes.put(code, codes.size() + out.newCodes.size());
+    }
+
+    private int codeId(String code, Encoder out) {
+        Integer id = codeIds.get(code);
+        return id != null ? id : out.newCodes.get(code);
+    }
+
+    // Append a batch of records; on failure the log is cut back so nothing partial is left behind
+    private void append(Encoder out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(out.bytes(), 0, out.length());
+        long position = size;
+        try {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(size);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        size = position;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Student store record runs past the end of the file");
+            }
+        }
+    }
+
+    // PUT payload: id, program, flags, term, history as (code id, passed, units), current subjects
+    private void encodeStudent(Student student, Encoder out) {
+        out.writeByte(PUT);
+        out.writeString(student.getStudentId());
+        out.writeString(student.getProgramCode() == null ? "" : student.getProgramCode());
+        out.writeByte((byte) ((student.isNew() ? 1 : 0) | (student.getProgramCode() == null ? 2 : 0)));
+        out.writeVarint(student.getCurrentYear());
+        out.writeVarint(student.getCurrentSemester());
+
+        Map<String, Boolean> history = student.getAcademicHistory();
+        out.writeVarint(history.size());
+        for (Map.Entry<String, Boolean> entry : history.entrySet()) {
+            Subject subject = student.getTakenSubjects().get(entry.getKey());
+            out.writeVarint(codeId(entry.getKey(), out) << 1 | (entry.getValue() ? 1 : 0));
+            out.writeVarint(subject == null ? 0 : subject.getUnits());
+        }
+
+        List<String> current = student.getCurrentSubjects();
+        out.writeVarint(current.size());
+        for (String code : current) {
+            out.writeVarint(codeId(code, out));
+        }
+    }
+
+    private static Student decodeStudent(Decoder in, List<String> codes) {
+        in.readByte();
+        String studentId = in.readString();
+        String program = in.readString();
+        byte flags = in.readByte();
+        Student student = new Student(studentId, (flags & 2) != 0 ? null : program, (flags & 1) != 0);
+        int year = in.readVarint();
+        int semester = in.readVarint();
+        student.setCurrentTerm(year, semester);
+
+        int taken = in.readVarint();
+        for (int i = 0; i < taken; i++) {
+            int entry = in.readVarint();
+            int units = in.readVarint();
+            student.addTakenSubject(new Subject(codes.get(entry >>> 1), units), (entry & 1) != 0);
+        }
+
+        int current = in.readVarint();
+        List<String> currentSubjects = new ArrayList<>(current);
+        for (int i = 0; i < current; i++) {
+            currentSubjects.add(codes.get(in.readVarint()));
+        }
+        student.setCurrentSubjects(currentSubjects);
+        return student;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+
+    // Sequential reader over the framed records of a log, up to a fixed end offset
+    private static final class LogReader implements Closeable {
+        private final FileChannel channel;
+        private final DataInputStream in;
+        private final long end;
+        private long position;
+
+        LogReader(FileChannel channel, long end, boolean ownsChannel) throws IOException {
+            this.channel = ownsChannel ? channel : null;
+            this.end = end;
+            this.in = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(channel.position(0)), SCAN_BUFFER_BYTES));
+            if (end < HEADER_BYTES || in.readInt() != MAGIC) {
+                throw new IOException("Not a student store: missing header");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported student store version " + version);
+            }
+            this.position = HEADER_BYTES;
+        }
+
+        long position() {
+            return position;
+        }
+
+        // Next record's payload, or null at the end or at a torn last record: one cut short by the
+        // end, one failing its checksum with nothing after it, or zeros up to the end. Any other
+        // damaged record fails the read.
+        byte[] next() throws IOException {
+            if (end - position < FRAME_BYTES) {
+                return null;
+            }
+            int length = in.readInt();
+            int checksum = in.readInt();
+            long remaining = end - position - FRAME_BYTES;
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                if (length == 0 && checksum == 0 && zerosToEnd(remaining)) {
+                    return null;
+                }
+                throw damaged();
+            }
+            if (remaining < length) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                if (remaining == length) {
+                    return null;
+                }
+                throw damaged();
+            }
+            position += FRAME_BYTES + length;
+            return payload;
+        }
+
+        private boolean zerosToEnd(long remaining) throws IOException {
+            for (long i = 0; i < remaining; i++) {
+                if (in.readByte() != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private IOException damaged() {
+            return new IOException("Damaged student store record at offset " + position);
+        }
+
+        // Only closes channels the reader was given for its own use
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    // Growable buffer of framed records, along with the dictionary codes they define
+    private static final class Encoder {
+        final Map<String, Integer> newCodes = new LinkedHashMap<>();
+        private byte[] bytes = new byte[256];
+        private int length;
+        private int recordStart;
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int length() {
+            return length;
+        }
+
+        void beginRecord() {
+            recordStart = length;
+            ensure(FRAME_BYTES);
+            length += FRAME_BYTES;
+        }
+
+        // Fill in the frame of the record started by beginRecord
+        void endRecord() {
+            int payloadLength = length - recordStart - FRAME_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(bytes, recordStart + FRAME_BYTES, payloadLength);
+            ByteBuffer.wrap(bytes, recordStart, FRAME_BYTES).putInt(payloadLength).putInt((int) crc.getValue());
+        }
+
+        void writeByte(byte value) {
+            ensure(1);
+            bytes[length++] = value;
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        // Bytes writeString uses for a value
+        static int stringLength(String value) {
+            int utf8 = value.getBytes(StandardCharsets.UTF_8).length;
+            int length = utf8 + 1;
+            while ((utf8 >>>= 7) != 0) {
+                length++;
+            }
+            return length;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+
+    private static final class Decoder {
+        private final byte[] bytes;
+        private int position;
+
+        Decoder(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte readByte() {
+            return bytes[position++];
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        String readString() {
+            int length = readVarint();
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
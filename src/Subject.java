@@ -6,7 +6,11 @@ public class Subject {
     private int units;
     private String year;
     private String semester;
+    private int term; // Packed year and semester (see Term), or Term.NONE
     private List<String> prerequisites;
+    private List<String> corequisites = new ArrayList<>();
+    private PrerequisiteExpression requirement; // Null when every prerequisite simply has to be passed
+    private final int ordinal; // Dense id in the CurriculumIndex that owns this copy, -1 for none
 
     // Original constructor with all parameters
     public Subject(String code, int units, String year, String semester) {
@@ -14,7 +18,20 @@ public class Subject {
         this.units = units;
         this.year = year;
         this.semester = semester;
+        this.term = Term.parse(year, semester);
         this.prerequisites = new ArrayList<>();
+        this.ordinal = -1;
+    }
+
+    // Subject built straight into a CurriculumIndex with its ordinal (see CurriculumSnapshot)
+    Subject(String code, int units, String year, String semester, int ordinal) {
+        this.code = code;
+        this.units = units;
+        this.year = year;
+        this.semester = semester;
+        this.term = Term.parse(year, semester);
+        this.prerequisites = new ArrayList<>();
+        this.ordinal = ordinal;
     }
 
     // New constructor that only requires code and units
@@ -23,18 +40,45 @@ public class Subject {
         this.units = units;
         this.year = "";
         this.semester = "";
+        this.term = Term.NONE;
         this.prerequisites = new ArrayList<>();
+        this.ordinal = -1;
+    }
+
+    // Copy owned by a CurriculumIndex, so indexes built over the same subjects never share ordinals
+    Subject(Subject source, int ordinal) {
+        this.code = source.code;
+        this.units = source.units;
+        this.year = source.year;
+        this.semester = source.semester;
+        this.term = source.term;
+        this.prerequisites = new ArrayList<>(source.prerequisites);
+        this.corequisites = new ArrayList<>(source.corequisites);
+        this.requirement = source.requirement;
+        this.ordinal = ordinal;
     }
 
     public String getCode() { return code; }
     public int getUnits() { return units; }
     public String getYear() { return year; }
     public String getSemester() { return semester; }
+    public int getTerm() { return term; }
     public List<String> getPrerequisites() { return prerequisites; }
+    public List<String> getCorequisites() { return corequisites; }
+    public PrerequisiteExpression getRequirement() { return requirement; }
+    public int getOrdinal() { return ordinal; }
     public void addPrerequisite(String prereq) { prerequisites.add(prereq); }
 
     // Added setter for prerequisites
     public void setPrerequisites(List<String> prerequisites) {
         this.prerequisites = prerequisites;
     }
+
+    // Use a prerequisite expression; the prerequisite and corequisite lists then name every code it
+    // mentions, alternatives included
+    public void setRequirement(PrerequisiteExpression requirement) {
+        this.requirement = requirement;
+        this.prerequisites = requirement.getCodes(PrerequisiteExpression.Kind.PREREQUISITE);
+        this.corequisites = requirement.getCodes(PrerequisiteExpression.Kind.COREQUISITE);
+    }
 }
\ No newline at end of file
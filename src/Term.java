@@ -0,0 +1,89 @@
+// A (year, semester) term packed into one int as year << 2 | semester, so terms compare in
+// calendar order as plain ints and stepping through them needs no parsing. Semester 3 is the
+// summer term between a year's second semester and the next year. NONE marks a subject that has
+// no usable year or semester.
+public final class Term {
+    public static final int NONE = 0;
+    public static final int SUMMER = 3;
+    static final int TERMS_PER_YEAR = 3; // Two semesters and a summer
+
+    private Term() {
+    }
+
+    public static int of(int year, int semester) {
+        if (!isValid(year, semester)) {
+            throw new IllegalArgumentException("Invalid term: year " + year + ", semester " + semester);
+        }
+        return year << 2 | semester;
+    }
+
+    public static boolean isValid(int year, int semester) {
+        return year >= 1 && year < 1 << 28 && semester >= 1 && semester <= SUMMER;
+    }
+
+    public static int year(int term) {
+        return term >>> 2;
+    }
+
+    public static int semester(int term) {
+        return term & 3;
+    }
+
+    public static boolean isSummer(int term) {
+        return semester(term) == SUMMER;
+    }
+
+    // Position counted from the first semester of year 1, for arrays with a slot per term
+    static int index(int term) {
+        return (year(term) - 1) * TERMS_PER_YEAR + semester(term) - 1;
+    }
+
+    // The regular semester after a term: summer is skipped
+    public static int nextSemester(int term) {
+        return semester(term) == 1 ? term + 1 : of(year(term) + 1, 1);
+    }
+
+    // The term after a term, including the summer after a second semester
+    public static int next(int term) {
+        return isSummer(term) ? of(year(term) + 1, 1) : term + 1;
+    }
+
+    // Term of curriculum.xml style year and semester strings ("1", "2", "3" or "summer"), or NONE
+    public static int parse(String year, String semester) {
+        int y = parseNumber(year, 0, year.length());
+        int s = semester.equalsIgnoreCase("summer") ? SUMMER : parseNumber(semester, 0, semester.length());
+        return isValid(y, s) ? of(y, s) : NONE;
+    }
+
+    // Term of a "year-semester" key such as "2-1", or NONE
+    public static int parse(String key) {
+        int dash = key.indexOf('-');
+        if (dash < 0) {
+            return NONE;
+        }
+        int y = parseNumber(key, 0, dash);
+        int s = parseNumber(key, dash + 1, key.length());
+        return isValid(y, s) ? of(y, s) : NONE;
+    }
+
+    // "year-semester" key of a term
+    public static String toString(int term) {
+        return year(term) + "-" + semester(term);
+    }
+
+    // Digits only, without allocating; -1 if there are none or the value is too large for a year
+    private static int parseNumber(String text, int from, int to) {
+        if (from >= to || to - from > 8) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
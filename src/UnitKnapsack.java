@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+// 0/1 knapsack over unit totals. A semester load never exceeds 63 units, so for every item the
+// totals whose best subset took that item fit in a single long; reconstructing a subset for any
+// total walks those bitsets backwards. Runs in O(items * maxUnits) with no per-state allocation.
+final class UnitKnapsack {
+    static final long UNREACHABLE = Long.MIN_VALUE;
+    private static final int MAX_SUPPORTED_UNITS = 63;
+
+    private final int[] units;
+    private final long[] bestScores;
+    private final long[] took;
+
+    private UnitKnapsack(int[] units, long[] bestScores, long[] took) {
+        this.units = units;
+        this.bestScores = bestScores;
+        this.took = took;
+    }
+
+    // Best score for every total up to maxUnits, or null if the deadline (System.nanoTime) passes
+    static UnitKnapsack solve(int[] units, long[] scores, int maxUnits, long deadline) {
+        if (maxUnits < 0 || maxUnits > MAX_SUPPORTED_UNITS) {
+            throw new IllegalArgumentException("Unit limit must be between 0 and " + MAX_SUPPORTED_UNITS);
+        }
+
+        long[] best = new long[maxUnits + 1];
+        Arrays.fill(best, UNREACHABLE);
+        best[0] = 0;
+        long reachable = 1L; // Bit t set when some subset totals t units
+        long limit = maxUnits == MAX_SUPPORTED_UNITS ? -1L : (1L << (maxUnits + 1)) - 1;
+        long[] took = new long[units.length];
+
+        for (int i = 0; i < units.length; i++) {
+            if ((i & 7) == 0 && System.nanoTime() - deadline > 0) {
+                return null;
+            }
+
+            int size = units[i];
+            if (size < 0 || size > maxUnits) {
+                continue;
+            }
+
+            long taken = 0;
+            // Walk totals downwards so each item is used at most once
+            for (long from = reachable & (limit >>> size); from != 0; ) {
+                long highest = Long.highestOneBit(from);
+                from ^= highest;
+                int total = Long.numberOfTrailingZeros(highest);
+                int target = total + size;
+                long score = best[total] + scores[i];
+                if (score > best[target]) {
+                    best[target] = score;
+                    taken |= 1L << target;
+                }
+            }
+            took[i] = taken;
+            reachable |= (reachable << size) & limit;
+        }
+        return new UnitKnapsack(units, best, took);
+    }
+
+    // Best score of a subset totalling exactly this many units, or UNREACHABLE
+    long bestScore(int total) {
+        return bestScores[total];
+    }
+
+    int maxUnits() {
+        return bestScores.length - 1;
+    }
+
+    // Items of the best subset for a reachable total
+    boolean[] select(int total) {
+        if (bestScores[total] == UNREACHABLE) {
+            throw new IllegalArgumentException("No subset totals " + total + " units");
+        }
+
+        boolean[] chosen = new boolean[units.length];
+        for (int i = units.length - 1; i >= 0; i--) {
+            if ((took[i] & (1L << total)) != 0) {
+                chosen[i] = true;
+                total -= units[i];
+            }
+        }
+        return chosen;
+    }
+}
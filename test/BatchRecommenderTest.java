@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// CSV input is read as records, so a quoted field may span lines, and output fields that would
+// break a record are quoted
+class BatchRecommenderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void quotedFieldsMaySpanLines() throws Exception {
+        List<String> rows = run("students.csv", "studentId,program,year,semester,history\n"
+                + "one-line,BSIT,1,2,eng100:P;math100:F\n"
+                + "\n"
+                + "multi-line,BSIT,1,2,\"eng100:P;\n"
+                + "math100:F\"\n"
+                + "\"quoted \"\"id\"\"\",BSIT,1,1,\n");
+
+        assertEquals(3, rows.size());
+        assertEquals(rows.get(0).substring("one-line".length()), rows.get(1).substring("multi-line".length()));
+        assertTrue(rows.get(2).startsWith("\"quoted \"\"id\"\"\",BSIT,"), rows.get(2));
+        assertTrue(rows.get(1).endsWith(","), rows.get(1)); // No error
+    }
+
+    @Test
+    void unterminatedQuoteOnlyFailsItsOwnRecord() throws Exception {
+        BatchRecommender batch = new BatchRecommender(School.getDefault(), 2);
+        List<String> rows = run(batch, "students.csv", "studentId,program,year,semester,history\n"
+                + "first,BSIT,1,2,eng100:P\n"
+                + "open,BSIT,1,2,\"eng100:P\n"
+                + "math100:F\n");
+
+        assertEquals(2, rows.size());
+        assertTrue(rows.get(0).endsWith(","), rows.get(0));
+        assertTrue(rows.get(1).startsWith("open,"), rows.get(1));
+        assertTrue(rows.get(1).endsWith("Unterminated quoted field"), rows.get(1));
+        assertEquals(1, batch.getErrors());
+    }
+
+    @Test
+    void carriageReturnsAreQuotedOnOutput() throws Exception {
+        List<String> rows = run("students.jsonl",
+                "{\"studentId\": \"a\\rb\", \"program\": \"BSIT\"}\n"
+                        + "{\"studentId\": \"c\", \"program\": \"BS\\rXX\"}\n");
+
+        assertEquals(2, rows.size());
+        assertTrue(rows.get(0).startsWith("\"a\rb\",BSIT,"), rows.get(0));
+        assertTrue(rows.get(1).endsWith(",\"Unknown program: BS\rXX\""), rows.get(1));
+    }
+
+    private List<String> run(String name, String input) throws Exception {
+        return run(new BatchRecommender(School.getDefault(), 2), name, input);
+    }
+
+    // Output records after the header; rows are single lines unless a quoted field holds a break
+    private List<String> run(BatchRecommender batch, String name, String input) throws Exception {
+        Path in = directory.resolve(name);
+        Path out = directory.resolve("out.csv");
+        Files.write(in, input.getBytes(StandardCharsets.UTF_8));
+        batch.run(in, out);
+
+        String output = new String(Files.readAllBytes(out), StandardCharsets.UTF_8);
+        List<String> records = new ArrayList<>();
+        StringBuilder record = new StringBuilder();
+        boolean quoted = false;
+        for (char c : output.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (c == '\n' && !quoted) {
+                records.add(record.toString());
+                record.setLength(0);
+            } else {
+                record.append(c);
+            }
+        }
+        assertEquals(0, record.length());
+        assertEquals("studentId,program,totalUnits,subjects,error", records.remove(0));
+        assertEquals(records.size(), batch.getRows());
+        return records;
+    }
+}
@@ -0,0 +1,132 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A compiled snapshot must load as the same curriculum, and never once its XML has changed
+class CurriculumSnapshotTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void snapshotLoadsAsTheSameCurriculum() throws IOException {
+        Path xml = copyCurriculum();
+        CurriculumIndex parsed = TestCurricula.load(new String(Files.readAllBytes(xml), StandardCharsets.UTF_8));
+        CurriculumIndex loaded = CurriculumSnapshot.open(CurriculumSnapshot.compile(xml)).toIndex();
+
+        assertEquals(parsed.getSubjects().size(), loaded.getSubjects().size());
+        for (int i = 0; i < parsed.getSubjects().size(); i++) {
+            Subject expected = parsed.getSubjects().get(i);
+            Subject actual = loaded.getSubjects().get(i);
+            assertEquals(expected.getCode(), actual.getCode());
+            assertEquals(expected.getUnits(), actual.getUnits());
+            assertEquals(expected.getTerm(), actual.getTerm());
+            assertEquals(expected.getPrerequisites(), actual.getPrerequisites());
+            assertEquals(expected.getOrdinal(), actual.getOrdinal());
+        }
+
+        StudentEval fromXml = new StudentEval(parsed);
+        StudentEval fromSnapshot = new StudentEval(loaded);
+        Random random = new Random(9);
+        List<Subject> subjects = parsed.getSubjects();
+        for (int i = 0; i < 2_000; i++) {
+            Map<String, Boolean> history = new HashMap<>();
+            for (int j = random.nextInt(subjects.size()); j > 0; j--) {
+                history.put(subjects.get(random.nextInt(subjects.size())).getCode(), random.nextInt(4) != 0);
+            }
+            int year = 1 + random.nextInt(4);
+            int semester = 1 + random.nextInt(2);
+            assertEquals(codes(fromXml.getRecommendedSubjects(history, year, semester)),
+                    codes(fromSnapshot.getRecommendedSubjects(history, year, semester)));
+        }
+    }
+
+    @Test
+    void registryUsesAnUpToDateSnapshot() throws IOException {
+        Path xml = copyCurriculum();
+        CurriculumSnapshot.compile(xml);
+        assertEquals(totalUnits(xml), units(CurriculumRegistry.get(xml.toString())));
+    }
+
+    @Test
+    void changedStampRejectsTheSnapshot() throws IOException {
+        Path xml = copyCurriculum();
+        CurriculumSnapshot.compile(xml);
+        editUnits(xml, 6_000);
+        Files.setLastModifiedTime(xml, FileTime.fromMillis(Files.getLastModifiedTime(xml).toMillis() + 2_000));
+
+        assertNotEquals(totalUnits(xml), units(CurriculumSnapshot.open(CurriculumSnapshot.pathFor(xml)).toIndex()));
+        assertEquals(totalUnits(xml), units(CurriculumRegistry.get(xml.toString())));
+    }
+
+    @Test
+    void changedFirstBlockRejectsTheSnapshotEvenWithTheSameStamp() throws IOException {
+        Path xml = copyCurriculum();
+        CurriculumSnapshot.compile(xml);
+        FileTime stamp = Files.getLastModifiedTime(xml);
+        editUnits(xml, 0);
+        Files.setLastModifiedTime(xml, stamp);
+
+        assertEquals(totalUnits(xml), units(CurriculumRegistry.get(xml.toString())));
+    }
+
+    @Test
+    void verifiedSnapshotsRejectAnyContentChange() throws IOException {
+        Path xml = copyCurriculum();
+        CurriculumSnapshot.compile(xml);
+        FileTime stamp = Files.getLastModifiedTime(xml);
+        editUnits(xml, 6_000); // Past the first block, so only the full hash sees it
+        Files.setLastModifiedTime(xml, stamp);
+
+        CurriculumRegistry.setVerifySnapshots(true);
+        try {
+            assertEquals(totalUnits(xml), units(CurriculumRegistry.get(xml.toString())));
+        } finally {
+            CurriculumRegistry.setVerifySnapshots(false);
+        }
+    }
+
+    private Path copyCurriculum() throws IOException {
+        Path xml = directory.resolve("curriculum.xml");
+        Files.copy(Paths.get(CurriculumRegistry.DEFAULT_CURRICULUM), xml);
+        return xml;
+    }
+
+    // Turn the first units="3" at or after an offset into units="4", keeping the size
+    private static void editUnits(Path xml, int from) throws IOException {
+        String content = new String(Files.readAllBytes(xml), StandardCharsets.UTF_8);
+        int at = content.indexOf("units=\"3\"", from);
+        assertTrue(at >= 0);
+        String edited = content.substring(0, at) + "units=\"4\"" + content.substring(at + 9);
+        Files.write(xml, edited.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Units as parsed from the XML right now
+    private static int totalUnits(Path xml) throws IOException {
+        return units(TestCurricula.load(new String(Files.readAllBytes(xml), StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> codes(List<Subject> subjects) {
+        List<String> codes = new ArrayList<>();
+        for (Subject subject : subjects) {
+            codes.add(subject.getCode());
+        }
+        return codes;
+    }
+
+    private static int units(CurriculumIndex curriculum) {
+        int units = 0;
+        for (Subject subject : curriculum.getSubjects()) {
+            units += subject.getUnits();
+        }
+        return units;
+    }
+}
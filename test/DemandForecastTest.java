@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Merged worker histograms must count exactly what one pass over the students counts
+class DemandForecastTest {
+    private static final int STUDENTS = 3_000;
+
+    @Test
+    void workerHistogramsAddUpToASequentialCount() throws InterruptedException {
+        School school = School.getDefault();
+        List<Student> population = population(school, new Random(3));
+
+        DemandForecast single = new DemandForecast(school, 1);
+        single.run(population.iterator());
+        DemandForecast parallel = new DemandForecast(school, 4);
+        parallel.run(population.iterator());
+
+        Map<String, int[][]> expected = new HashMap<>();
+        int errors = 0;
+        for (Student student : population) {
+            Program program = student.getProgramCode() == null ? school.getPrograms().iterator().next()
+                    : school.getProgram(student.getProgramCode());
+            if (program == null) {
+                errors++;
+                continue;
+            }
+            CurriculumIndex curriculum = program.getCurriculumIndex();
+            int yearLevel = student.isNew() ? 1 : Math.min(4, Term.year(curriculum.nextTerm(
+                    Term.of(student.getCurrentYear(), student.getCurrentSemester()))));
+            for (Subject subject : new StudentEval(school, program.getProgramCode(), null).getRecommendedSubjects(student)) {
+                expected.computeIfAbsent(program.getProgramCode(), key -> new int[5][curriculum.getOrdinalCount()])
+                        [yearLevel][curriculum.ordinalOf(subject.getCode())]++;
+            }
+        }
+
+        for (DemandForecast forecast : Arrays.asList(single, parallel)) {
+            assertEquals(STUDENTS, forecast.getStudents());
+            assertEquals(errors, forecast.getErrors());
+            for (Program program : school.getPrograms()) {
+                CurriculumIndex curriculum = program.getCurriculumIndex();
+                int[][] counts = expected.getOrDefault(program.getProgramCode(), new int[5][curriculum.getOrdinalCount()]);
+                for (int year = 1; year <= 4; year++) {
+                    for (int ordinal = 0; ordinal < curriculum.getSubjectOrdinalCount(); ordinal++) {
+                        String code = curriculum.codeAt(ordinal);
+                        assertEquals(counts[year][ordinal], forecast.getDemand(program.getProgramCode(), year, code),
+                                program.getProgramCode() + " year " + year + " " + code);
+                    }
+                }
+            }
+        }
+        assertFalse(expected.isEmpty());
+    }
+
+    // New and continuing students across every program, plus a few with an unknown program
+    private static List<Student> population(School school, Random random) {
+        List<Program> programs = new ArrayList<>(school.getPrograms());
+        List<Subject> subjects = programs.get(0).getCurriculumIndex().getSubjects();
+        List<Student> population = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            String programCode = random.nextInt(100) == 0 ? "NONE"
+                    : programs.get(random.nextInt(programs.size())).getProgramCode().toLowerCase(Locale.ROOT);
+            Student student = new Student("s" + i, programCode, random.nextInt(10) == 0);
+            student.setCurrentTerm(1 + random.nextInt(4), 1 + random.nextInt(2));
+            int entries = random.nextInt(subjects.size());
+            for (int j = 0; j < entries; j++) {
+                student.addTakenSubject(subjects.get(random.nextInt(subjects.size())), random.nextInt(4) != 0);
+            }
+            population.add(student);
+        }
+        return population;
+    }
+}
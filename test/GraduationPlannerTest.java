@@ -0,0 +1,150 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Plans must meet every subject's compiled rule in the term it is planned for
+class GraduationPlannerTest {
+    private static final int MAX_UNITS = 26;
+
+    @Test
+    void plansMeetCorequisitesAnyOfAndYearStanding() {
+        CurriculumIndex curriculum = TestCurricula.load("<curriculum><firstYear><firstSem>"
+                + "<subject subjectCode=\"lec\" units=\"3\" />"
+                + "<subject subjectCode=\"lab\" units=\"1\"><prerequisites>"
+                + "<corequisite>lec</corequisite></prerequisites></subject>"
+                + "<subject subjectCode=\"capstone\" units=\"3\"><prerequisites>"
+                + "<prerequisite>lec</prerequisite><yearStanding>3</yearStanding></prerequisites></subject>"
+                + "<subject subjectCode=\"alt\" units=\"3\"><prerequisites><anyOf>"
+                + "<prerequisite>nowhere</prerequisite><prerequisite>lab</prerequisite></anyOf></prerequisites></subject>"
+                + "<subject subjectCode=\"ma\" units=\"3\"><prerequisites><corequisite>mb</corequisite></prerequisites></subject>"
+                + "<subject subjectCode=\"mb\" units=\"3\"><prerequisites><corequisite>ma</corequisite></prerequisites></subject>"
+                + "</firstSem></firstYear></curriculum>");
+        Map<String, Boolean> history = new HashMap<>();
+        GraduationPlan plan = new GraduationPlanner(curriculum, MAX_UNITS)
+                .plan(AcademicRecord.of(curriculum, history), 1, 1);
+
+        assertValid(curriculum, history, plan);
+        assertEquals(Term.of(3, 1), termOf(plan, "capstone"));
+        assertTrue(termOf(plan, "alt") > termOf(plan, "lab"));
+        // Each needs the other in the same term, which plans cannot express
+        assertEquals(Arrays.asList("ma", "mb"), codes(plan.getUnschedulable()));
+        assertFalse(plan.isOptimal()); // lab waits for lec instead of joining it
+    }
+
+    @Test
+    void randomPlansMeetEveryRule() {
+        Random random = new Random(5);
+        for (int c = 0; c < 20; c++) {
+            CurriculumIndex curriculum = TestCurricula.randomRules(random, 60);
+            List<Subject> subjects = curriculum.getSubjects();
+            for (int i = 0; i < 25; i++) {
+                Map<String, Boolean> history = new HashMap<>();
+                int entries = random.nextInt(30);
+                for (int j = 0; j < entries; j++) {
+                    history.put(subjects.get(random.nextInt(subjects.size())).getCode(), random.nextInt(4) != 0);
+                }
+                GraduationPlan plan = new GraduationPlanner(curriculum, MAX_UNITS, 20_000_000)
+                        .plan(AcademicRecord.of(curriculum, history), 1 + random.nextInt(4), 1 + random.nextInt(2));
+                assertValid(curriculum, history, plan);
+            }
+        }
+    }
+
+    @Test
+    void randomPlansTakePrerequisitesFirst() {
+        CurriculumIndex curriculum = CurriculumRegistry.get();
+        List<Subject> subjects = curriculum.getSubjects();
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            Map<String, Boolean> history = new HashMap<>();
+            int entries = random.nextInt(subjects.size());
+            for (int j = 0; j < entries; j++) {
+                history.put(subjects.get(random.nextInt(subjects.size())).getCode(), random.nextInt(4) != 0);
+            }
+            GraduationPlan plan = new GraduationPlanner(curriculum, MAX_UNITS)
+                    .plan(AcademicRecord.of(curriculum, history), 1 + random.nextInt(4), 1 + random.nextInt(2));
+            assertValid(curriculum, history, plan);
+        }
+    }
+
+    @Test
+    void subjectsOverTheCapAreUnschedulable() {
+        CurriculumIndex curriculum = CurriculumRegistry.get();
+        GraduationPlan plan = new GraduationPlanner(curriculum, 2)
+                .plan(AcademicRecord.of(curriculum, new HashMap<>()), 1, 1);
+
+        assertFalse(plan.isComplete());
+        for (Subject subject : plan.getUnschedulable()) {
+            assertTrue(subject.getUnits() > 2 || !subject.getPrerequisites().isEmpty(), subject.getCode());
+        }
+    }
+
+    @Test
+    void freshmanPlansAreCompleteAndOptimal() {
+        CurriculumIndex curriculum = CurriculumRegistry.get();
+        Map<String, Boolean> history = new HashMap<>();
+        GraduationPlan plan = new GraduationPlanner(curriculum, MAX_UNITS)
+                .plan(AcademicRecord.of(curriculum, history), 1, 1);
+
+        assertValid(curriculum, history, plan);
+        assertTrue(plan.isComplete());
+        assertTrue(plan.isOptimal());
+    }
+
+    // Every term within the cap, every subject meeting its rule with the term's subjects taken
+    // alongside, and every subject not passed either planned once or unschedulable
+    private static void assertValid(CurriculumIndex curriculum, Map<String, Boolean> history, GraduationPlan plan) {
+        Set<String> passed = new HashSet<>();
+        history.forEach((code, pass) -> {
+            if (pass) passed.add(code);
+        });
+        for (GraduationPlan.Term term : plan.getTerms()) {
+            assertTrue(term.getUnits() <= MAX_UNITS);
+            Set<String> withTerm = new HashSet<>(passed);
+            for (Subject subject : term.getSubjects()) {
+                assertTrue(withTerm.add(subject.getCode()), subject.getCode() + " planned twice");
+            }
+            for (Subject subject : term.getSubjects()) {
+                assertTrue(curriculum.prerequisiteMask(subject).isSatisfiedBy(
+                                bits(curriculum, passed), bits(curriculum, withTerm), term.getYear()),
+                        () -> subject.getCode() + " planned in " + term.getYear() + "-" + term.getSemester()
+                                + " without meeting its rule " + subject.getRequirement());
+            }
+            passed.addAll(withTerm);
+        }
+        for (Subject subject : curriculum.getSubjects()) {
+            assertNotEquals(passed.contains(subject.getCode()), plan.getUnschedulable().contains(subject),
+                    subject.getCode());
+        }
+    }
+
+    private static int termOf(GraduationPlan plan, String code) {
+        for (GraduationPlan.Term term : plan.getTerms()) {
+            if (codes(term.getSubjects()).contains(code)) {
+                return Term.of(term.getYear(), term.getSemester());
+            }
+        }
+        return Term.NONE;
+    }
+
+    private static long[] bits(CurriculumIndex curriculum, Set<String> codes) {
+        long[] bits = new long[curriculum.getWordCount()];
+        for (String code : codes) {
+            int ordinal = curriculum.ordinalOf(code);
+            if (ordinal >= 0) {
+                bits[ordinal >>> 6] |= 1L << ordinal;
+            }
+        }
+        return bits;
+    }
+
+    private static List<String> codes(List<Subject> subjects) {
+        List<String> codes = new ArrayList<>();
+        for (Subject subject : subjects) {
+            codes.add(subject.getCode());
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// updateRecommendation must give exactly what a full recompute gives for the updated history
+class IncrementalRecommendationTest {
+    private static final int HISTORIES = 10_000;
+    private static final int DELTAS_PER_HISTORY = 10;
+
+    @Test
+    void updatesMatchFullRecomputeOnTheDefaultCurriculum() {
+        StudentEval eval = new StudentEval(CurriculumRegistry.get());
+        List<String> codes = new ArrayList<>();
+        for (Subject subject : eval.getAllSubjects()) {
+            codes.add(subject.getCode());
+        }
+        codes.add("zz-unknown"); // Not in the curriculum
+        codes.add("it-el1"); // Elective slot
+
+        assertUpdatesMatch(eval, codes, new Random(7), HISTORIES, 45);
+    }
+
+    @Test
+    void updatesMatchFullRecomputeWithRichRules() {
+        Random random = new Random(11);
+        StudentEval eval = new StudentEval(TestCurricula.randomRules(random, 60));
+        List<String> codes = new ArrayList<>();
+        for (Subject subject : eval.getAllSubjects()) {
+            codes.add(subject.getCode());
+        }
+
+        assertUpdatesMatch(eval, codes, random, HISTORIES / 5, 40);
+    }
+
+    private static void assertUpdatesMatch(StudentEval eval, List<String> codes, Random random, int histories,
+                                           int maxEntries) {
+        for (int i = 0; i < histories; i++) {
+            Map<String, Boolean> history = new HashMap<>();
+            int entries = random.nextInt(maxEntries);
+            for (int j = 0; j < entries; j++) {
+                history.put(codes.get(random.nextInt(codes.size())), random.nextInt(4) != 0);
+            }
+            int year = 1 + random.nextInt(4);
+            int semester = 1 + random.nextInt(2);
+
+            IncrementalRecommendation recommendation = eval.recommendIncrementally(history, year, semester);
+            assertEquals(eval.getRecommendedSubjects(history, year, semester), recommendation.getSubjects());
+
+            for (int d = 0; d < DELTAS_PER_HISTORY; d++) {
+                // Mostly change a subject already in the history, sometimes add or drop one
+                String code = random.nextInt(3) == 0 && !history.isEmpty()
+                        ? new ArrayList<>(history.keySet()).get(random.nextInt(history.size()))
+                        : codes.get(random.nextInt(codes.size()));
+                Boolean passed = random.nextInt(5) == 0 ? null : random.nextBoolean();
+                if (passed == null) {
+                    history.remove(code);
+                } else {
+                    history.put(code, passed);
+                }
+
+                recommendation = eval.updateRecommendation(recommendation, code, passed);
+                assertEquals(eval.getRecommendedSubjects(history, year, semester), recommendation.getSubjects(),
+                        () -> "History " + history + " in year " + year + ", semester " + semester);
+            }
+        }
+    }
+}
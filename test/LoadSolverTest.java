@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The OPTIMAL load solver against the greedy phases it replaces
+class LoadSolverTest {
+    private static final int MAX_UNITS = 26;
+    private static final int IDEAL_UNITS = 21;
+    private static final long BUDGET_NANOS = 1_000_000_000; // Never the reason for a result here
+
+    @Test
+    void optimalLoadsStayWithinTheCapAndMeetEveryRule() {
+        assertValidLoads(CurriculumRegistry.get(), new Random(1), 5_000);
+        assertValidLoads(TestCurricula.randomRules(new Random(3), 60), new Random(5), 5_000);
+    }
+
+    @Test
+    void optimalRetakesFailedSubjectsTheGreedyPhasesSkip() {
+        StudentEval greedy = new StudentEval(CurriculumRegistry.get());
+        StudentEval optimal = greedy.withLoadSolver(StudentEval.LoadSolver.OPTIMAL, BUDGET_NANOS);
+
+        // First year passed except two failed first-term subjects
+        Map<String, Boolean> history = new HashMap<>();
+        for (Subject subject : greedy.getAllSubjects()) {
+            if (subject.getYear().equals("1")) {
+                history.put(subject.getCode(), true);
+            }
+        }
+        history.put("math100", false);
+        history.put("eng100", false);
+
+        List<String> greedyCodes = codes(greedy.getRecommendedSubjects(history, 1, 2));
+        List<String> optimalCodes = codes(optimal.getRecommendedSubjects(history, 1, 2));
+        assertFalse(greedyCodes.contains("math100") || greedyCodes.contains("eng100"), greedyCodes::toString);
+        assertTrue(optimalCodes.contains("math100") && optimalCodes.contains("eng100"), optimalCodes::toString);
+    }
+
+    @Test
+    void optimalLoadsAreCloserToTheIdealThanGreedyOnes() {
+        StudentEval greedy = new StudentEval(CurriculumRegistry.get());
+        StudentEval optimal = greedy.withLoadSolver(StudentEval.LoadSolver.OPTIMAL, BUDGET_NANOS);
+        List<Subject> all = greedy.getAllSubjects();
+        Random random = new Random(1);
+
+        long greedyDistance = 0;
+        long optimalDistance = 0;
+        for (int i = 0; i < 5_000; i++) {
+            Map<String, Boolean> history = randomHistory(all, random);
+            int year = 1 + random.nextInt(4);
+            int semester = 1 + random.nextInt(2);
+            greedyDistance += Math.abs(units(greedy.getRecommendedSubjects(history, year, semester)) - IDEAL_UNITS);
+            optimalDistance += Math.abs(units(optimal.getRecommendedSubjects(history, year, semester)) - IDEAL_UNITS);
+        }
+        assertTrue(optimalDistance <= greedyDistance,
+                "optimal " + optimalDistance + " units off the ideal, greedy " + greedyDistance);
+    }
+
+    @Test
+    void solverChoiceIsRejectedWhenInvalid() {
+        StudentEval eval = new StudentEval(CurriculumRegistry.get());
+        assertThrows(IllegalArgumentException.class, () -> eval.withLoadSolver(null));
+        assertThrows(IllegalArgumentException.class, () -> eval.withLoadSolver(StudentEval.LoadSolver.OPTIMAL, 0));
+    }
+
+    private static void assertValidLoads(CurriculumIndex curriculum, Random random, int histories) {
+        StudentEval optimal = new StudentEval(curriculum).withLoadSolver(StudentEval.LoadSolver.OPTIMAL, BUDGET_NANOS);
+        List<Subject> all = curriculum.getSubjects();
+        for (int i = 0; i < histories; i++) {
+            Map<String, Boolean> history = randomHistory(all, random);
+            int year = 1 + random.nextInt(4);
+            int semester = 1 + random.nextInt(2);
+            List<Subject> load = optimal.getRecommendedSubjects(history, year, semester);
+            String context = "History " + history + " in year " + year + ", semester " + semester + ": " + codes(load);
+
+            assertTrue(units(load) <= MAX_UNITS, context);
+            assertEquals(load.size(), new HashSet<>(load).size(), context);
+
+            // Every subject meets its rule with the rest of the load taken alongside it
+            AcademicRecord record = AcademicRecord.of(curriculum, history);
+            long[] concurrent = new long[curriculum.getWordCount()];
+            for (Subject subject : load) {
+                assertFalse(record.hasPassed(subject.getOrdinal()), context);
+                concurrent[subject.getOrdinal() >>> 6] |= 1L << subject.getOrdinal();
+            }
+            int nextYear = Term.year(curriculum.nextTerm(Term.of(year, semester)));
+            for (Subject subject : load) {
+                assertTrue(record.satisfies(curriculum.prerequisiteMask(subject), concurrent, nextYear),
+                        () -> subject.getCode() + " does not meet its rule. " + context);
+            }
+        }
+    }
+
+    private static Map<String, Boolean> randomHistory(List<Subject> subjects, Random random) {
+        Map<String, Boolean> history = new HashMap<>();
+        int entries = random.nextInt(subjects.size());
+        boolean inOrder = random.nextInt(3) == 0; // Like a student who followed the curriculum
+        for (int i = 0; i < entries; i++) {
+            Subject subject = inOrder ? subjects.get(i) : subjects.get(random.nextInt(subjects.size()));
+            history.put(subject.getCode(), random.nextInt(6) != 0);
+        }
+        return history;
+    }
+
+    private static int units(List<Subject> subjects) {
+        return subjects.stream().mapToInt(Subject::getUnits).sum();
+    }
+
+    private static List<String> codes(List<Subject> subjects) {
+        List<String> codes = new ArrayList<>();
+        for (Subject subject : subjects) {
+            codes.add(subject.getCode());
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Precomputed ancestors and descendants against a plain walk of the required prerequisites
+class PrerequisiteGraphTest {
+
+    @Test
+    void reachabilityMatchesAWalk() {
+        Random random = new Random(5);
+        for (int i = 0; i < 20; i++) {
+            assertReachability(TestCurricula.randomRules(random, 200));
+        }
+        assertReachability(CurriculumRegistry.get());
+    }
+
+    @Test
+    void cyclesFailTheLoad() {
+        String xml = "<curriculum><firstYear><firstSem>"
+                + "<subject subjectCode=\"a\" units=\"3\"><prerequisites><prerequisite>c</prerequisite></prerequisites></subject>"
+                + "<subject subjectCode=\"b\" units=\"3\"><prerequisites><prerequisite>a</prerequisite></prerequisites></subject>"
+                + "<subject subjectCode=\"c\" units=\"3\"><prerequisites><prerequisite>b</prerequisite></prerequisites></subject>"
+                + "</firstSem></firstYear></curriculum>";
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> TestCurricula.load(xml));
+        assertTrue(failure.getMessage().contains("[a, b, c]"), failure.getMessage());
+    }
+
+    private static void assertReachability(CurriculumIndex curriculum) {
+        PrerequisiteGraph graph = curriculum.getPrerequisiteGraph();
+        Map<String, Set<String>> ancestors = new HashMap<>();
+        for (Subject subject : curriculum.getSubjects()) {
+            ancestors.put(subject.getCode(), walk(curriculum, subject.getCode()));
+        }
+
+        for (Subject subject : curriculum.getSubjects()) {
+            String code = subject.getCode();
+            Set<String> expected = ancestors.get(code);
+            assertEquals(expected, new HashSet<>(graph.getAncestors(code)), code);
+            assertEquals(expected.size(), graph.getAncestors(code).size(), code);
+
+            Set<String> descendants = new HashSet<>();
+            ancestors.forEach((other, found) -> {
+                if (found.contains(code)) descendants.add(other);
+            });
+            assertEquals(descendants, new HashSet<>(graph.getDescendants(code)), code);
+
+            for (Subject other : curriculum.getSubjects()) {
+                assertEquals(expected.contains(other.getCode()), graph.isPrerequisiteOf(other.getCode(), code),
+                        other.getCode() + " before " + code);
+            }
+        }
+    }
+
+    // Codes every way of meeting the rule needs, followed transitively
+    private static Set<String> walk(CurriculumIndex curriculum, String code) {
+        Set<String> seen = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(Collections.singleton(code));
+        while (!pending.isEmpty()) {
+            Subject subject = curriculum.getSubject(pending.pop());
+            if (subject == null) {
+                continue;
+            }
+            List<String> required = subject.getRequirement() == null ? subject.getPrerequisites()
+                    : subject.getRequirement().getRequiredCodes();
+            for (String prereq : required) {
+                if (seen.add(prereq)) pending.push(prereq);
+            }
+        }
+        return seen;
+    }
+}
@@ -0,0 +1,159 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compiled rules against a plain walk of the expression they came from
+class PrerequisiteMaskTest {
+    private static final int CODES = 150; // Codes c0..c149, spread over three words
+
+    @Test
+    void compiledRulesMatchTheExpression() {
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            PrerequisiteExpression rule = randomRule(random, 4);
+            PrerequisiteMask mask = compile(rule);
+            assertForwardJumps(mask, rule);
+
+            for (int j = 0; j < 40; j++) {
+                long[] passed = new long[3];
+                long[] concurrent = new long[3];
+                double density = random.nextDouble();
+                for (int ordinal = 0; ordinal < CODES; ordinal++) {
+                    if (random.nextDouble() < density) passed[ordinal >>> 6] |= 1L << ordinal;
+                    if (random.nextDouble() < 0.2) concurrent[ordinal >>> 6] |= 1L << ordinal;
+                }
+                int year = 1 + random.nextInt(4);
+                assertEquals(evaluate(rule, passed, concurrent, year), mask.isSatisfiedBy(passed, concurrent, year),
+                        () -> rule + " in year " + year);
+            }
+        }
+    }
+
+    @Test
+    void prerequisiteListsCompileToPlainMasks() {
+        PrerequisiteExpression list = PrerequisiteExpression.allOf(Arrays.asList(
+                PrerequisiteExpression.prerequisite("c3"),
+                PrerequisiteExpression.allOf(Collections.singletonList(PrerequisiteExpression.prerequisite("c70"))),
+                PrerequisiteExpression.prerequisite("c3")));
+        PrerequisiteMask compiled = compile(list);
+        PrerequisiteMask plain = PrerequisiteMask.of(new int[]{3, 70});
+
+        assertNull(compiled.program());
+        assertArrayEquals(plain.wordIndexes(), compiled.wordIndexes());
+        assertArrayEquals(plain.wordBits(), compiled.wordBits());
+        assertFalse(compiled.hasCorequisites());
+        assertTrue(compile(PrerequisiteExpression.allOf(Collections.emptyList())).isEmpty());
+    }
+
+    @Test
+    void corequisitesAreOnlyReadFromConcurrentSubjects() {
+        PrerequisiteMask mask = compile(PrerequisiteExpression.allOf(Arrays.asList(
+                PrerequisiteExpression.prerequisite("c1"), PrerequisiteExpression.corequisite("c2"))));
+        long[] passed = {1L << 1, 0, 0};
+        long[] concurrent = {1L << 2, 0, 0};
+
+        assertTrue(mask.hasCorequisites());
+        assertFalse(mask.isSatisfiedBy(passed));
+        assertTrue(mask.isSatisfiedBy(passed, concurrent, 1));
+        assertFalse(mask.isSatisfiedBy(new long[3], concurrent, 1));
+    }
+
+    @Test
+    void rulesSurviveTheSnapshotRoundTrip() throws IOException {
+        CurriculumIndex curriculum = TestCurricula.randomRules(new Random(13), 80);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CurriculumSnapshot.write(curriculum, 1, 2, 3, new byte[32], out);
+
+        Path file = Files.createTempFile("curriculum", ".snapshot");
+        try {
+            Files.write(file, out.toByteArray());
+            CurriculumIndex loaded = CurriculumSnapshot.open(file).toIndex();
+
+            assertEquals(curriculum.getSubjects().size(), loaded.getSubjects().size());
+            for (Subject subject : loaded.getSubjects()) {
+                Subject original = curriculum.getSubject(subject.getCode());
+                PrerequisiteMask expected = curriculum.prerequisiteMask(original);
+                PrerequisiteMask actual = loaded.prerequisiteMask(subject);
+                assertArrayEquals(expected.program(), actual.program(), subject.getCode());
+                assertArrayEquals(expected.programBits(), actual.programBits(), subject.getCode());
+                assertArrayEquals(expected.wordIndexes(), actual.wordIndexes(), subject.getCode());
+                assertArrayEquals(expected.wordBits(), actual.wordBits(), subject.getCode());
+                assertEquals(String.valueOf(original.getRequirement()), String.valueOf(subject.getRequirement()));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static PrerequisiteMask compile(PrerequisiteExpression rule) {
+        return PrerequisiteMask.compile(rule, code -> Integer.parseInt(code.substring(1)));
+    }
+
+    // Jumps only go forward, so evaluation always ends
+    private static void assertForwardJumps(PrerequisiteMask mask, PrerequisiteExpression rule) {
+        int[] program = mask.program();
+        if (program == null) {
+            return;
+        }
+        for (int at = 0; at < program.length; at += PrerequisiteMask.INSTRUCTION_SIZE) {
+            int instruction = at / PrerequisiteMask.INSTRUCTION_SIZE;
+            for (int exit = 2; exit <= 3; exit++) {
+                int target = program[at + exit];
+                assertTrue(target < 0 || target > instruction, () -> "Backward jump in " + rule);
+            }
+        }
+    }
+
+    private static PrerequisiteExpression randomRule(Random random, int depth) {
+        int kind = random.nextInt(depth <= 0 ? 3 : 6);
+        switch (kind) {
+            case 0:
+                return PrerequisiteExpression.prerequisite("c" + random.nextInt(CODES));
+            case 1:
+                return PrerequisiteExpression.corequisite("c" + random.nextInt(CODES));
+            case 2:
+                return PrerequisiteExpression.yearStanding(1 + random.nextInt(4));
+            default: {
+                // allOf may be empty, anyOf needs a member
+                int size = random.nextInt(4) + (kind == 3 ? 0 : 1);
+                List<PrerequisiteExpression> members = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    members.add(randomRule(random, depth - 1));
+                }
+                return kind == 4 ? PrerequisiteExpression.anyOf(members) : PrerequisiteExpression.allOf(members);
+            }
+        }
+    }
+
+    private static boolean evaluate(PrerequisiteExpression rule, long[] passed, long[] concurrent, int year) {
+        switch (rule.getKind()) {
+            case PREREQUISITE:
+                return isSet(passed, rule.getCode());
+            case COREQUISITE:
+                return isSet(passed, rule.getCode()) || isSet(concurrent, rule.getCode());
+            case YEAR_STANDING:
+                return year >= rule.getYear();
+            case ALL_OF:
+                for (PrerequisiteExpression member : rule.getChildren()) {
+                    if (!evaluate(member, passed, concurrent, year)) return false;
+                }
+                return true;
+            default:
+                for (PrerequisiteExpression member : rule.getChildren()) {
+                    if (evaluate(member, passed, concurrent, year)) return true;
+                }
+                return false;
+        }
+    }
+
+    private static boolean isSet(long[] bits, String code) {
+        int ordinal = Integer.parseInt(code.substring(1));
+        return (bits[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+}
@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Cached results must never outlive the curriculum snapshot they were computed against
+class RecommendationCacheTest {
+
+    @Test
+    void supersededSnapshotsAreNeverServedAndDroppedOnTheNextOne() {
+        RecommendationCache cache = new RecommendationCache(100);
+        CurriculumIndex old = TestCurricula.randomRules(new Random(1), 40);
+        AtomicInteger computed = new AtomicInteger();
+        AcademicRecord record = AcademicRecord.of(old, new HashMap<>());
+
+        List<Subject> first = cache.get(old, record, 1, 1, 0, () -> compute(old, computed));
+        assertEquals(first, cache.get(old, record, 1, 1, 0, () -> compute(old, computed)));
+        assertEquals(1, computed.get());
+        assertEquals(1, cache.size());
+
+        old.markSuperseded();
+        cache.get(old, record, 1, 1, 0, () -> compute(old, computed));
+        assertEquals(2, computed.get());
+
+        CurriculumIndex current = TestCurricula.randomRules(new Random(1), 40);
+        cache.get(current, AcademicRecord.of(current, new HashMap<>()), 1, 1, 0, () -> compute(current, computed));
+        assertEquals(3, computed.get());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    void entriesDoNotKeepTheirSnapshotAlive() throws InterruptedException {
+        RecommendationCache cache = new RecommendationCache(100);
+        WeakReference<CurriculumIndex> dropped = fill(cache);
+
+        for (int i = 0; i < 50 && dropped.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(dropped.get());
+
+        CurriculumIndex next = TestCurricula.randomRules(new Random(2), 40);
+        cache.get(next, AcademicRecord.of(next, new HashMap<>()), 1, 1, 0, () -> compute(next, new AtomicInteger()));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void capacityHoldsAcrossStripes() {
+        RecommendationCache cache = new RecommendationCache(37);
+        CurriculumIndex curriculum = CurriculumRegistry.get();
+        List<Subject> subjects = curriculum.getSubjects();
+        for (int i = 0; i < subjects.size(); i++) {
+            Map<String, Boolean> history = Collections.singletonMap(subjects.get(i).getCode(), true);
+            cache.get(curriculum, AcademicRecord.of(curriculum, history), 1, 1, 0, Collections::emptyList);
+        }
+        assertTrue(cache.size() <= 37);
+        assertEquals(subjects.size() - cache.size(), cache.getEvictionCount());
+    }
+
+    @Test
+    void concurrentLookupsGetTheComputedResult() throws Exception {
+        RecommendationCache cache = new RecommendationCache(500);
+        StudentEval eval = new StudentEval(CurriculumRegistry.get());
+        StudentEval cached = new StudentEval(CurriculumRegistry.get(), cache);
+        List<Subject> subjects = eval.getAllSubjects();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int seed = t;
+                done.add(pool.submit(() -> {
+                    Random random = new Random(seed % 2); // Pairs of threads repeat each other's lookups
+                    for (int i = 0; i < 2_000; i++) {
+                        Map<String, Boolean> history = new HashMap<>();
+                        for (int j = random.nextInt(8); j > 0; j--) {
+                            history.put(subjects.get(random.nextInt(subjects.size())).getCode(), random.nextBoolean());
+                        }
+                        int year = 1 + random.nextInt(4);
+                        assertEquals(eval.getRecommendedSubjects(history, year, 1),
+                                cached.getRecommendedSubjects(history, year, 1));
+                    }
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(cache.getHitCount() > 0);
+    }
+
+    private static WeakReference<CurriculumIndex> fill(RecommendationCache cache) {
+        CurriculumIndex curriculum = TestCurricula.randomRules(new Random(1), 40);
+        cache.get(curriculum, AcademicRecord.of(curriculum, new HashMap<>()), 1, 1, 0,
+                () -> compute(curriculum, new AtomicInteger()));
+        return new WeakReference<>(curriculum);
+    }
+
+    private static List<Subject> compute(CurriculumIndex curriculum, AtomicInteger computed) {
+        computed.incrementAndGet();
+        return new ArrayList<>(Arrays.asList(curriculum.getTermSubjects(1, 1)));
+    }
+}
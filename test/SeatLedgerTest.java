@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Seats handed out never exceed the capacity, and unconfirmed holds give theirs back
+class SeatLedgerTest {
+    private static final Subject POPULAR = new Subject("it101", 3);
+    private static final Subject UNLIMITED = new Subject("ge1", 3);
+
+    @Test
+    void concurrentHoldsNeverOversell() throws Exception {
+        SeatLedger ledger = new SeatLedger(1, TimeUnit.HOURS);
+        ledger.setCapacity(POPULAR.getCode(), 500);
+        AtomicInteger held = new AtomicInteger();
+        List<SeatReservation> released = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        SeatReservation reservation = ledger.open(thread + "-" + i);
+                        boolean seat = reservation.hold(POPULAR);
+                        assertTrue(reservation.hold(UNLIMITED));
+                        reservation.finish();
+                        if (seat) {
+                            held.incrementAndGet();
+                        }
+                        // Every tenth student changes their mind, freeing the seat for another
+                        if (i % 10 == 0 && reservation.release() && seat) {
+                            released.add(reservation);
+                        } else {
+                            reservation.confirm();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(500 + released.size(), held.get());
+        assertEquals(0, ledger.getAvailable(POPULAR.getCode()));
+        assertEquals(-1, ledger.getAvailable(UNLIMITED.getCode()));
+    }
+
+    @Test
+    void unconfirmedHoldsExpire() throws InterruptedException {
+        SeatLedger ledger = new SeatLedger(20, TimeUnit.MILLISECONDS);
+        ledger.setCapacity(POPULAR.getCode(), 2);
+
+        SeatReservation confirmed = hold(ledger, "a");
+        assertTrue(confirmed.confirm());
+        SeatReservation pending = hold(ledger, "b");
+        assertEquals(0, ledger.getAvailable(POPULAR.getCode()));
+
+        Thread.sleep(50);
+        assertEquals(1, ledger.expireReservations());
+        assertEquals(0, ledger.getPendingCount());
+        assertEquals(1, ledger.getAvailable(POPULAR.getCode()));
+
+        assertFalse(pending.confirm());
+        assertTrue(confirmed.confirm()); // Still confirmed past the deadline
+        assertTrue(confirmed.isConfirmed());
+        assertEquals(1, ledger.getAvailable(POPULAR.getCode()));
+    }
+
+    @Test
+    void lateConfirmExpiresTheHold() throws InterruptedException {
+        SeatLedger ledger = new SeatLedger(20, TimeUnit.MILLISECONDS);
+        ledger.setCapacity(POPULAR.getCode(), 1);
+        SeatReservation reservation = hold(ledger, "a");
+
+        Thread.sleep(50);
+        assertFalse(reservation.confirm());
+        assertFalse(reservation.release());
+        assertEquals(1, ledger.getAvailable(POPULAR.getCode()));
+        assertEquals(0, ledger.expireReservations());
+    }
+
+    private static SeatReservation hold(SeatLedger ledger, String studentId) {
+        SeatReservation reservation = ledger.open(studentId);
+        assertTrue(reservation.hold(POPULAR));
+        reservation.finish();
+        return reservation;
+    }
+}
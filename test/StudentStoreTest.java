@@ -0,0 +1,160 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Reopening, compacting and recovering a store must give back exactly the students last written
+class StudentStoreTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenedStoreHasTheLatestVersions() {
+        Path file = directory.resolve("students.log");
+        Map<String, Student> expected = new HashMap<>();
+        try (StudentStore store = StudentStore.open(file)) {
+            Random random = new Random(1);
+            for (int i = 0; i < 500; i++) {
+                Student student = student("s" + random.nextInt(100), random);
+                store.put(student);
+                expected.put(student.getStudentId(), student);
+            }
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected.remove("s" + i) != null, store.delete("s" + i));
+            }
+        }
+
+        try (StudentStore store = StudentStore.open(file)) {
+            assertStudents(expected, store);
+        }
+    }
+
+    @Test
+    void compactionKeepsOnlyLiveRecords() throws IOException {
+        Path file = directory.resolve("students.log");
+        Map<String, Student> expected = new HashMap<>();
+        try (StudentStore store = StudentStore.open(file)) {
+            Random random = new Random(2);
+            for (int i = 0; i < 2_000; i++) {
+                Student student = student("s" + random.nextInt(50), random);
+                store.put(student);
+                expected.put(student.getStudentId(), student);
+            }
+            long before = Files.size(file);
+            store.compact();
+            assertTrue(Files.size(file) < before);
+            assertStudents(expected, store);
+
+            Student student = student("new", random);
+            store.put(student);
+            expected.put("new", student);
+        }
+
+        try (StudentStore store = StudentStore.open(file)) {
+            assertStudents(expected, store);
+        }
+    }
+
+    @Test
+    void tornTailIsCutOff() throws IOException {
+        Path file = directory.resolve("students.log");
+        Map<String, Student> expected = new HashMap<>();
+        Random random = new Random(3);
+        try (StudentStore store = StudentStore.open(file)) {
+            for (int i = 0; i < 20; i++) {
+                Student student = student("s" + i, random);
+                store.put(student);
+                expected.put(student.getStudentId(), student);
+            }
+        }
+        long intact = Files.size(file);
+
+        // Half of one more record, as a crash mid-append leaves it; no new codes, so it is a
+        // single record
+        try (StudentStore store = StudentStore.open(file)) {
+            store.put(new Student("torn", "BSIT", false));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(intact + (channel.size() - intact) / 2);
+        }
+
+        try (StudentStore store = StudentStore.open(file)) {
+            assertEquals(intact, Files.size(file));
+            assertStudents(expected, store);
+            Student student = student("after", random);
+            store.put(student);
+            expected.put("after", student);
+        }
+        try (StudentStore store = StudentStore.open(file)) {
+            assertStudents(expected, store);
+        }
+    }
+
+    @Test
+    void damageBeforeTheEndFailsTheOpen() throws IOException {
+        Path file = directory.resolve("students.log");
+        Random random = new Random(4);
+        try (StudentStore store = StudentStore.open(file)) {
+            for (int i = 0; i < 20; i++) {
+                store.put(student("s" + i, random));
+            }
+        }
+
+        // Flip a byte in the first record's payload
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer first = ByteBuffer.allocate(1);
+            channel.read(first, 16);
+            first.put(0, (byte) (first.get(0) ^ 0x40)).rewind();
+            channel.write(first, 16);
+        }
+        long size = Files.size(file);
+
+        assertThrows(RuntimeException.class, () -> StudentStore.open(file));
+        assertEquals(size, Files.size(file));
+    }
+
+    private static Student student(String studentId, Random random) {
+        Student student = new Student(studentId, random.nextBoolean() ? "BSIT" : null, random.nextInt(5) == 0);
+        student.setCurrentTerm(1 + random.nextInt(4), 1 + random.nextInt(2));
+        int taken = random.nextInt(12);
+        for (int i = 0; i < taken; i++) {
+            student.addTakenSubject(new Subject("c" + random.nextInt(400), 1 + random.nextInt(5)), random.nextBoolean());
+        }
+        student.setCurrentSubjects(new ArrayList<>(Collections.singletonList("c" + random.nextInt(400))));
+        return student;
+    }
+
+    private static void assertStudents(Map<String, Student> expected, StudentStore store) {
+        assertEquals(expected.keySet(), store.getStudentIds());
+        for (Student student : expected.values()) {
+            assertSame(student, store.get(student.getStudentId()));
+        }
+        List<String> scanned = new ArrayList<>();
+        store.scan(student -> {
+            assertSame(expected.get(student.getStudentId()), student);
+            scanned.add(student.getStudentId());
+        });
+        assertEquals(expected.size(), scanned.size());
+    }
+
+    private static void assertSame(Student expected, Student actual) {
+        assertEquals(expected.getStudentId(), actual.getStudentId());
+        assertEquals(expected.getProgramCode(), actual.getProgramCode());
+        assertEquals(expected.isNew(), actual.isNew());
+        assertEquals(expected.getCurrentYear(), actual.getCurrentYear());
+        assertEquals(expected.getCurrentSemester(), actual.getCurrentSemester());
+        assertEquals(expected.getAcademicHistory(), actual.getAcademicHistory());
+        assertEquals(expected.getCurrentSubjects(), actual.getCurrentSubjects());
+        for (Subject subject : expected.getTakenSubjects().values()) {
+            assertEquals(subject.getUnits(), actual.getTakenSubjects().get(subject.getCode()).getUnits());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Generated curricula for tests that need rules the shipped curricula do not use
+final class TestCurricula {
+    private static final String[] YEARS = {"firstYear", "secondYear", "thirdYear", "fourthYear"};
+    private static final String[] SEMESTERS = {"firstSem", "secondSem"};
+
+    private TestCurricula() {
+    }
+
+    // Up to the given number of subjects s0, s1, ... over eight terms, with random prerequisites,
+    // corequisites (which may name each other), anyOf groups and year standings. Rules may name
+    // codes past the last subject, which the curriculum does not define.
+    static CurriculumIndex randomRules(Random random, int subjects) {
+        StringBuilder xml = new StringBuilder("<curriculum>");
+        int perTerm = subjects / (YEARS.length * SEMESTERS.length);
+        int code = 0;
+        for (String year : YEARS) {
+            xml.append('<').append(year).append('>');
+            for (String semester : SEMESTERS) {
+                xml.append('<').append(semester).append('>');
+                for (int i = 0; i < perTerm; i++, code++) {
+                    xml.append("<subject subjectCode=\"s").append(code).append("\" units=\"")
+                            .append(1 + random.nextInt(4)).append("\"><prerequisites>");
+                    if (code > 0 && random.nextInt(2) == 0) {
+                        xml.append("<prerequisite>s").append(random.nextInt(code)).append("</prerequisite>");
+                    }
+                    if (random.nextInt(3) == 0) {
+                        xml.append("<corequisite>s").append(random.nextInt(subjects)).append("</corequisite>");
+                    }
+                    if (code > 0 && random.nextInt(4) == 0) {
+                        xml.append("<anyOf><corequisite>s").append(random.nextInt(subjects))
+                                .append("</corequisite><prerequisite>s").append(random.nextInt(code))
+                                .append("</prerequisite></anyOf>");
+                    }
+                    if (random.nextInt(5) == 0) {
+                        xml.append("<yearStanding>").append(1 + random.nextInt(4)).append("</yearStanding>");
+                    }
+                    xml.append("</prerequisites></subject>");
+                }
+                xml.append("</").append(semester).append('>');
+            }
+            xml.append("</").append(year).append('>');
+        }
+        xml.append("</curriculum>");
+        return load(xml.toString());
+    }
+
+    static CurriculumIndex load(String xml) {
+        return new CurriculumIndex(CurriculumLoader.load(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+    }
+}